@@ -0,0 +1,172 @@
+package com.mts.aadati.security;
+
+import com.mts.aadati.entities.Role;
+import com.mts.aadati.repository.RoleRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Authorization decision time per route: the compiled trie of SecurityConfiguration against the ordered
+// requestMatchers chain it replaced, rebuilt below with the same rules in the same order. Routes go from
+// the top of the chain to the habit rules near its bottom, where most of the traffic lands.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteAuthorizationBenchmark {
+
+    private static final String ADMIN = "ADMIN";
+    private static final String USER = "USER";
+
+    @Param({
+            "GET /aadati/v1/user/all",
+            "GET /aadati/v1/roles/active",
+            "GET /habit/all",
+            "POST /api/v1/habit-completions/complete",
+            "GET /aadati/v1/habit-category/all",
+            "GET /unmapped/path"
+    })
+    private String route;
+
+    private RequestAuthorizationContext context;
+    private Authentication authentication;
+    private RouteAuthorizationManager trie;
+    private AuthorizationManager<RequestAuthorizationContext> chain;
+
+    @Setup
+    public void setup() {
+        Role user = Role.builder().name("ROLE_USER").build();
+        user.assignBit(0);
+        Role admin = Role.builder().name("ROLE_ADMIN").build();
+        admin.assignBit(1);
+        RoleRepository roleRepository = Mockito.mock(RoleRepository.class);
+        Mockito.when(roleRepository.findAll()).thenReturn(List.of(user, admin));
+        RoleBitIndex roleBitIndex = new RoleBitIndex(roleRepository, Mockito.mock(PlatformTransactionManager.class));
+        roleBitIndex.refresh();
+
+        trie = new SecurityConfiguration(null, null, null, null, roleBitIndex).routeAuthorizationManager();
+        chain = requestMatchersChain();
+
+        RoleAuthorities authorities = roleBitIndex.authoritiesOf(List.of("ROLE_USER"));
+        CustomUserDetails principal = new CustomUserDetails(UUID.randomUUID(), "benchmark", null,
+                "benchmark@aadati.local", authorities);
+        authentication = UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities);
+
+        int space = route.indexOf(' ');
+        String path = route.substring(space + 1);
+        MockHttpServletRequest request = new MockHttpServletRequest(route.substring(0, space), path);
+        request.setServletPath(path);
+        context = new RequestAuthorizationContext(request);
+    }
+
+    @Benchmark
+    public AuthorizationResult trie() {
+        return trie.authorize(() -> authentication, context);
+    }
+
+    @Benchmark
+    public AuthorizationResult requestMatchers() {
+        return chain.authorize(() -> authentication, context);
+    }
+
+    // ===== The requestMatchers chain as it was declared before the trie =====
+    private static AuthorizationManager<RequestAuthorizationContext> requestMatchersChain() {
+        var admin = AuthorityAuthorizationManager.<RequestAuthorizationContext>hasRole(ADMIN);
+        var userOrAdmin = AuthorityAuthorizationManager.<RequestAuthorizationContext>hasAnyRole(USER, ADMIN);
+        AuthorizationManager<RequestAuthorizationContext> permitAll =
+                (authentication, context) -> new AuthorizationDecision(true);
+        PathPatternRequestMatcher.Builder path = PathPatternRequestMatcher.withDefaults();
+
+        RequestMatcherDelegatingAuthorizationManager.Builder builder = RequestMatcherDelegatingAuthorizationManager.builder();
+        for (String pattern : List.of("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**", "/aadati/v1/auth/**")) {
+            builder.add(path.matcher(pattern), permitAll);
+        }
+        for (String pattern : List.of(
+                "/aadati/v1/user/all",
+                "/aadati/v1/user/search/firstName/**",
+                "/aadati/v1/user/search/lastName/**",
+                "/aadati/v1/user/search/fullName/**",
+                "/aadati/v1/user/recent",
+                "/aadati/v1/user/search/createdAt/**",
+                "/aadati/v1/user/search/updatedAt/**",
+                "/aadati/v1/user/role/**",
+                "/aadati/v1/user/withRoles",
+                "/aadati/v1/user/count/role/**")) {
+            builder.add(path.matcher(pattern), admin);
+        }
+        builder.add(path.matcher("/aadati/v1/user/**"), userOrAdmin);
+        for (String pattern : List.of(
+                "/aadati/v1/task-priority-level/add",
+                "/aadati/v1/task-priority-level/update",
+                "/aadati/v1/task-priority-level/remove/**")) {
+            builder.add(path.matcher(pattern), admin);
+        }
+        for (String pattern : List.of(
+                "/aadati/v1/task-priority-level/all",
+                "/aadati/v1/task-priority-level/colors",
+                "/aadati/v1/task-priority-level/asc",
+                "/aadati/v1/task-priority-level/desc",
+                "/aadati/v1/task-priority-level/search/**",
+                "/aadati/v1/task-priority-level/exists/**",
+                "/api/v1/task-completions/**")) {
+            builder.add(path.matcher(pattern), userOrAdmin);
+        }
+        for (String pattern : List.of("/aadati/v1/roles/add", "/aadati/v1/roles/add-list", "/aadati/v1/roles/delete/**")) {
+            builder.add(path.matcher(pattern), admin);
+        }
+        for (String pattern : List.of(
+                "/aadati/v1/roles/search/**",
+                "/aadati/v1/roles/active",
+                "/aadati/v1/roles/deleted",
+                "/aadati/v1/roles/count/active",
+                "/aadati/v1/roles/exists/**",
+                "/percentage-week/**",
+                "/percentage-day/**",
+                "/aadati/v1/habit-weeks/**",
+                "/habit-task/**",
+                "/aadati/v1/day-of-week/**",
+                "/habit/**",
+                "/api/v1/habit-completions/**")) {
+            builder.add(path.matcher(pattern), userOrAdmin);
+        }
+        builder.add(path.matcher(HttpMethod.GET, "/aadati/v1/habit-category/**"), userOrAdmin);
+        builder.add(path.matcher(HttpMethod.POST, "/aadati/v1/habit-category/**"), admin);
+        builder.add(path.matcher("/aadati/v1/habit-calendar/**"), userOrAdmin);
+        builder.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated());
+        return builder.build();
+    }
+}
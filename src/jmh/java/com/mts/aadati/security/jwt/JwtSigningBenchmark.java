@@ -0,0 +1,90 @@
+package com.mts.aadati.security.jwt;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Sign and verify cost of each key ring algorithm, HS256 being the shared secret path every node used
+// before. Tokens carry the same claims JwtService puts in an access token.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    @Param({"HS256", "ES256", "EdDSA"})
+    private String algorithm;
+
+    private JwtKeyRing keyRing;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void setup() {
+        keyRing = new JwtKeyRing();
+        ReflectionTestUtils.setField(keyRing, "algorithm", algorithm);
+        ReflectionTestUtils.setField(keyRing, "secretKey", Base64.getEncoder().encodeToString(new byte[32]));
+        ReflectionTestUtils.setField(keyRing, "activeKid", "primary");
+        ReflectionTestUtils.setField(keyRing, "previousKeys", "");
+        ReflectionTestUtils.setField(keyRing, "jwtExpiration", 3_600_000);
+        ReflectionTestUtils.setField(keyRing, "refreshExpiration", 604_800_000);
+
+        KeyPair keyPair = switch (algorithm) {
+            case "ES256" -> Jwts.SIG.ES256.keyPair().build();
+            case "EdDSA" -> Jwks.CRV.Ed25519.keyPair().build();
+            default -> null;
+        };
+        Base64.Encoder encoder = Base64.getEncoder();
+        ReflectionTestUtils.setField(keyRing, "asymmetricPrivateKey",
+                keyPair == null ? "" : encoder.encodeToString(keyPair.getPrivate().getEncoded()));
+        ReflectionTestUtils.setField(keyRing, "asymmetricPublicKey",
+                keyPair == null ? "" : encoder.encodeToString(keyPair.getPublic().getEncoded()));
+        keyRing.init();
+
+        parser = Jwts.parser().keyLocator(keyRing).build();
+        token = sign();
+    }
+
+    @Benchmark
+    public String sign() {
+        long now = System.currentTimeMillis();
+        return keyRing.sign(Jwts.builder()
+                        .subject("benchmark-user")
+                        .id("6f1c1d52-3c1f-4b8e-9d59-2f4f0a1f7c11")
+                        .claim("uid", "0b7d0c7e-8a43-4d0f-a8d5-3f1f8c9f2e10")
+                        .claim("roles", 1L)
+                        .claim("epoch", 0L)
+                        .issuedAt(new Date(now))
+                        .expiration(new Date(now + 3_600_000)))
+                .compact();
+    }
+
+    @Benchmark
+    public Object verify() {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+}
@@ -1,15 +1,22 @@
 package com.mts.aadati.controllers;
 
 import com.mts.aadati.dto.request.LoginRequest;
+import com.mts.aadati.dto.request.RefreshTokenRequest;
+import com.mts.aadati.exeption.ServiceBusyException;
 import com.mts.aadati.security.CustomUserDetails;
+import com.mts.aadati.security.jwt.JwtKeyRing;
 import com.mts.aadati.utils.ApiResponse;
 import com.mts.aadati.utils.AuthResponse;
+import com.mts.aadati.utils.ClientIpResolver;
 import com.mts.aadati.dto.request.UserRequest;
 import com.mts.aadati.services.AuthenticationService;
+import com.mts.aadati.services.SessionMetadataPipeline.Origin;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -18,6 +25,9 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * © 2025 Mohamed Taha
@@ -31,6 +41,8 @@ import java.util.Map;
 @Validated
 public class AuthController {
     private final AuthenticationService authenticationService;
+    private final JwtKeyRing jwtKeyRing;
+    private final ClientIpResolver clientIpResolver;
 
     @PostMapping("/register")
     public ResponseEntity<ApiResponse<AuthResponse>> register(
@@ -39,7 +51,7 @@ public class AuthController {
         log.debug("POST /register called for email: {}", request.getEmail());
 
         try {
-            AuthResponse authResponse = authenticationService.register(request);
+            AuthResponse authResponse = authenticationService.register(request, Origin.from(httpRequest, clientIpResolver));
             log.info("Registration successful for email: {}", request.getEmail());
 
             return ResponseEntity.status(HttpStatus.CREATED)
@@ -62,30 +74,73 @@ public class AuthController {
         }
     }
 
+    // ===== Async so the servlet thread is released while the password is verified =====
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<AuthResponse>> login(
-            @Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<ApiResponse<AuthResponse>>> login(
+            @Valid @RequestBody LoginRequest loginRequest,
+            HttpServletRequest httpRequest) {
         log.debug("POST /login called for username: {}", loginRequest.getUsername());
 
         try {
-            AuthResponse authResponse = authenticationService.login(
-                    loginRequest.getUsername().trim(),
-                    loginRequest.getPassword()
-            );
+            return authenticationService.login(
+                            loginRequest.getUsername().trim(),
+                            loginRequest.getPassword(),
+                            Origin.from(httpRequest, clientIpResolver))
+                    .thenApply(authResponse -> {
+                        log.info("Login successful for username: {}", loginRequest.getUsername());
+                        return ResponseEntity.ok(ApiResponse.success("Login successful", authResponse));
+                    })
+                    .exceptionally(throwable -> loginFailed(loginRequest.getUsername(), throwable));
+
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(loginFailed(loginRequest.getUsername(), e));
+        }
+    }
 
-            log.info("Login successful for username: {}", loginRequest.getUsername());
-            return ResponseEntity.ok(ApiResponse.success("Login successful", authResponse));
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<AuthResponse>> refresh(
+            @Valid @RequestBody RefreshTokenRequest refreshTokenRequest,
+            HttpServletRequest httpRequest) {
+        log.debug("POST /refresh called");
+
+        try {
+            AuthResponse authResponse = authenticationService.refresh(refreshTokenRequest.getRefreshToken(), Origin.from(httpRequest, clientIpResolver));
+            return ResponseEntity.ok(ApiResponse.success("Token refreshed successfully", authResponse));
 
         } catch (RuntimeException e) {
-            log.warn("Login failed for username {}: {}", loginRequest.getUsername(), e.getMessage());
+            log.warn("Token refresh failed: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(ApiResponse.error("Invalid username or password"));
+                    .body(ApiResponse.error("Invalid refresh token"));
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Unexpected error during login for username {}: {}",
-                    loginRequest.getUsername(), e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Login failed"));
+    // ===== Public signing keys so other nodes can verify tokens locally =====
+    @GetMapping("/jwks")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        log.debug("GET /jwks called");
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(Map.of("keys", jwtKeyRing.publicJwks()));
+    }
+
+    private ResponseEntity<ApiResponse<AuthResponse>> loginFailed(String username, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+
+        if (cause instanceof ServiceBusyException busy) {
+            log.warn("Login rejected for username {}: {}", username, busy.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(busy.getRetryAfterSeconds()))
+                    .body(ApiResponse.error("Service is busy, please retry later"));
+        }
+        if (cause instanceof RuntimeException) {
+            log.warn("Login failed for username {}: {}", username, cause.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(ApiResponse.error("Invalid username or password"));
         }
+        log.error("Unexpected error during login for username {}: {}", username, cause.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error("Login failed"));
     }
 }
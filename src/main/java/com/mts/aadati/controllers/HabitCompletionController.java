@@ -2,12 +2,14 @@ package com.mts.aadati.controllers;
 
 import com.mts.aadati.calculation.CalculationPercentageRateForDay;
 import com.mts.aadati.calculation.CalculationPercentageRateForWeek;
+import com.mts.aadati.dto.response.CursorPage;
 import com.mts.aadati.dto.response.HabitCompletionResponse;
 import com.mts.aadati.entities.Habit;
 import com.mts.aadati.entities.HabitCalendar;
 import com.mts.aadati.security.CustomUserDetails;
 import com.mts.aadati.services.HabitCalendarService;
 import com.mts.aadati.services.HabitCompletionService;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -163,6 +165,18 @@ public class HabitCompletionController {
         return ResponseEntity.ok(results);
     }
 
+    // ===== Keyset Pageable =====
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<HabitCompletionResponse>> cursorAll(@AuthenticationPrincipal CustomUserDetails userDetails,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam @Positive int pageSize,
+                                                                         @RequestParam(defaultValue = "false") boolean withTotal) {
+        log.debug("GET /api/v1/habit-completions/cursor called by user {}", userDetails.getId());
+        return habitCompletionService.cursorAll(userDetails.getId(), cursor, pageSize, withTotal)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.badRequest().build());
+    }
+
     // ===== Search By Title (Pageable) =====
     @GetMapping("/page/search")
     public ResponseEntity<Page<HabitCompletionResponse>> pageableSearchByTitle(@AuthenticationPrincipal CustomUserDetails userDetails,
@@ -1,6 +1,7 @@
 package com.mts.aadati.controllers;
 
 import com.mts.aadati.dto.request.HabitRequest;
+import com.mts.aadati.dto.response.CursorPage;
 import com.mts.aadati.dto.response.HabitResponse;
 import com.mts.aadati.security.CustomUserDetails;
 import com.mts.aadati.services.HabitService;
@@ -133,6 +134,20 @@ public class HabitController {
         return page.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(page);
     }
 
+    // ===== Keyset Pageable =====
+    @GetMapping("/cursor-all-active")
+    public ResponseEntity<CursorPage<HabitResponse>> cursorAllActive(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam @Positive int pageSize,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return habitService.cursorAllActive(userDetails.getId(), cursor, pageSize, withTotal)
+                .<ResponseEntity<CursorPage<HabitResponse>>>map(page -> page.content().isEmpty()
+                        ? ResponseEntity.noContent().build()
+                        : ResponseEntity.ok(page))
+                .orElseGet(() -> ResponseEntity.badRequest().build());
+    }
+
     @GetMapping("/pageable-category")
     public ResponseEntity<Page<HabitResponse>> pageableByCategory(
             @AuthenticationPrincipal CustomUserDetails userDetails,
@@ -1,6 +1,7 @@
 package com.mts.aadati.controllers;
 
 import com.mts.aadati.dto.request.HabitTaskRequest;
+import com.mts.aadati.dto.response.CursorPage;
 import com.mts.aadati.dto.response.HabitTaskResponse;
 import com.mts.aadati.entities.HabitCategory;
 import com.mts.aadati.entities.TaskPriorityLevel;
@@ -109,6 +110,20 @@ public class HabitTaskController {
         return page.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(page);
     }
 
+    // ===== Keyset Pageable =====
+    @GetMapping("/cursor-all-active")
+    public ResponseEntity<CursorPage<HabitTaskResponse>> cursorAllActive(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam @Positive int pageSize,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return habitTaskService.cursorAllActive(userDetails.getId(), cursor, pageSize, withTotal)
+                .<ResponseEntity<CursorPage<HabitTaskResponse>>>map(page -> page.content().isEmpty()
+                        ? ResponseEntity.noContent().build()
+                        : ResponseEntity.ok(page))
+                .orElseGet(() -> ResponseEntity.badRequest().build());
+    }
+
     @GetMapping("/pageable-start-date")
     public ResponseEntity<Page<HabitTaskResponse>> pageableByStartDate(
             @AuthenticationPrincipal CustomUserDetails userDetails,
@@ -1,25 +1,42 @@
 package com.mts.aadati.controllers;
 
 import com.mts.aadati.dto.request.UserRequest;
+import com.mts.aadati.dto.response.DeletionStatus;
 import com.mts.aadati.dto.response.UserResponse;
 import com.mts.aadati.entities.Role;
 import com.mts.aadati.entities.User;
+import com.mts.aadati.enums.DeletionState;
+import com.mts.aadati.exeption.ServiceBusyException;
 import com.mts.aadati.security.CustomUserDetails;
-import com.mts.aadati.services.AuthenticationService;
+import com.mts.aadati.services.DeletionService;
+import com.mts.aadati.services.UserExportService;
+import com.mts.aadati.services.UserImportService;
 import com.mts.aadati.services.UserService;
 import com.mts.aadati.utils.ApiResponse;
+import com.mts.aadati.utils.EmitterOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 /**
  * © 2025 Mohamed Taha
  * This file is part of the MTS Aadati Application.
@@ -29,8 +46,10 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class UserController {
 
-    private final AuthenticationService authenticationService;
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
+    private final DeletionService deletionService;
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
     // ===== CRUD Operations =====
@@ -61,12 +80,35 @@ public class UserController {
     }
 
     @DeleteMapping("/delete")
-    public ResponseEntity<ApiResponse<Void>> deleteAccount(@AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<ApiResponse<DeletionStatus>> deleteAccount(@AuthenticationPrincipal CustomUserDetails userDetails) {
         String username = userDetails.getUsername();
         logger.info("Delete account request for {}", username);
 
-        authenticationService.deleteAccount(username);
-        return ResponseEntity.ok(ApiResponse.success("Account deleted successfully", null));
+        try {
+            // Runs in the background, the account is locked out from now on; the job id is only in the Location
+            UUID jobId = deletionService.deleteUser(userDetails.getId());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/aadati/v1/user/deletion/" + jobId))
+                    .body(ApiResponse.success("Account deletion started",
+                            new DeletionStatus(DeletionState.RUNNING, "pending", 0)));
+        } catch (ServiceBusyException e) {
+            logger.warn("Delete account request for {} rejected: {}", username, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // Open to anyone holding the job id: a random UUID handed only to whoever started the deletion,
+    // whose tokens the deletion has revoked. Progress is read from the database, any node answers,
+    // and the body carries no user id or failure cause.
+    @GetMapping("/deletion/{jobId}")
+    public ResponseEntity<DeletionStatus> getDeletionStatus(@PathVariable UUID jobId) {
+        logger.debug("GET /deletion/{} called", jobId);
+
+        return deletionService.status(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
 
@@ -84,6 +126,53 @@ public class UserController {
         }
     }
 
+    // One user per line, streamed page by page instead of one array built in memory
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        logger.debug("GET /export called");
+
+        StreamingResponseBody body = userExportService::exportNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // CSV (with a header row) or NDJSON of UserRequest fields in, one result per row out as NDJSON.
+    // Runs under user.import.timeout (1 hour by default), not the MVC async timeout: a large import
+    // hashes for minutes. Chunks are committed as they are reported; on timeout or disconnect the
+    // import stops before its next chunk and the rows already reported stay created.
+    @PostMapping(value = "/import",
+            consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> importUsers(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "true") boolean welcome) throws IOException {
+        logger.debug("POST /import called with content type: {}", request.getContentType());
+
+        UserImportService.Format format = UserImportService.Format.of(request.getContentType());
+        InputStream in = request.getInputStream();
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(userImportService.getTimeout().toMillis());
+        try {
+            userImportService.submit(() -> {
+                try (OutputStream out = new EmitterOutputStream(emitter, MediaType.APPLICATION_NDJSON)) {
+                    userImportService.importUsers(in, format, welcome, out);
+                    emitter.complete();
+                } catch (IOException | RuntimeException e) {
+                    logger.error("User import failed: {}", e.getMessage());
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (ServiceBusyException e) {
+            logger.warn("POST /import rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(emitter);
+    }
+
     // ===== Current User Profile =====
 
     @GetMapping("/profile")
@@ -131,11 +220,13 @@ public class UserController {
     public ResponseEntity<List<UserResponse>> searchByFirstName(
             @NotBlank @Size(min = 1, max = 30)
             @Pattern(regexp = "^[\\p{L}\\p{M}\\s.'-]+$")
-            @PathVariable String firstName) {
+            @PathVariable String firstName,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
         logger.debug("GET /search/firstName/{} called", firstName);
 
         try {
-            List<UserResponse> users = userService.findByFirstNameLike(firstName);
+            List<UserResponse> users = userService.findByFirstNameLike(firstName, page, size);
             logger.info("Found {} users with firstName like: {}", users.size(), firstName);
             return ResponseEntity.ok(users);
         } catch (Exception e) {
@@ -148,11 +239,13 @@ public class UserController {
     public ResponseEntity<List<UserResponse>> searchByLastName(
             @NotBlank @Size(min = 1, max = 50)
             @Pattern(regexp = "^[\\p{L}\\p{M}\\s.'-]+$")
-            @PathVariable String lastName) {
+            @PathVariable String lastName,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
         logger.debug("GET /search/lastName/{} called", lastName);
 
         try {
-            List<UserResponse> users = userService.findByLastNameLike(lastName);
+            List<UserResponse> users = userService.findByLastNameLike(lastName, page, size);
             logger.info("Found {} users with lastName like: {}", users.size(), lastName);
             return ResponseEntity.ok(users);
         } catch (Exception e) {
@@ -163,11 +256,13 @@ public class UserController {
 
     @GetMapping("/search/email/similar")
     public ResponseEntity<List<UserResponse>> searchBySimilarEmail(
-            @AuthenticationPrincipal CustomUserDetails currentUser) {
+            @AuthenticationPrincipal CustomUserDetails currentUser,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
         logger.debug("GET /search/email/similar called for user: {}", currentUser.getUsername());
 
         try {
-            List<UserResponse> users = userService.findByEmailLike(currentUser.getEmail());
+            List<UserResponse> users = userService.findByEmailLike(currentUser.getEmail(), page, size);
             logger.info("Found {} users with email like: {}", users.size(), currentUser.getEmail());
             return ResponseEntity.ok(users);
         } catch (Exception e) {
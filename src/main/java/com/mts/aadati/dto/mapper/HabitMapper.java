@@ -46,6 +46,14 @@ public class HabitMapper {
         if (habit == null) {
             throw new IllegalArgumentException("Habit cannot be null");
         }
+        return toResponse(habit, mapHabitDayWeeksToIds(habit.getHabitDayWeeks()));
+    }
+
+    // For lists whose day-of-week ids were read in one query, leaves the collection uninitialized
+    public static HabitResponse toResponse(Habit habit, List<Long> habitDayWeekIds) {
+        if (habit == null) {
+            throw new IllegalArgumentException("Habit cannot be null");
+        }
 
         return HabitResponse.builder()
                 .habitId(habit.getHabitId())
@@ -57,7 +65,7 @@ public class HabitMapper {
                 .userId(habit.getUser() != null ? habit.getUser().getUserId() : null)
                 .habitCategoryId(habit.getHabitCategory() != null ?
                         habit.getHabitCategory().getHabitCategoryId() : null)
-                .habitDayWeekIds(mapHabitDayWeeksToIds(habit.getHabitDayWeeks()))
+                .habitDayWeekIds(habitDayWeekIds == null ? Collections.emptyList() : habitDayWeekIds)
                 .updatedAt(habit.getUpdatedAt())
                 .createdAt(habit.getCreatedAt())
                 .build();
@@ -28,7 +28,7 @@ public class UserMapper {
                 .password(request.getPassword())
                 .emailVerified(true)
                 .build();
-        user.setRoles(roleService.findEntityByName("ROLE_USER").stream().toList());
+        user.setRoles(roleService.getDefaultRoleReference().stream().toList());
         return user ;
     }
 
@@ -0,0 +1,18 @@
+package com.mts.aadati.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Data
+public class RefreshTokenRequest {
+
+    @NotBlank(message = "Refresh token is required")
+    @Size(max = 100, message = "Refresh token must not exceed 100 characters")
+    private String refreshToken;
+}
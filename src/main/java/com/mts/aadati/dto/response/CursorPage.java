@@ -0,0 +1,17 @@
+package com.mts.aadati.dto.response;
+
+import java.util.List;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// One page of a keyset-paged list: nextCursor is null on the last page,
+// totalElements is null unless the caller asked for it
+public record CursorPage<T>(List<T> content, String nextCursor, Long totalElements) {
+
+    public static <T> CursorPage<T> empty() {
+        return new CursorPage<>(List.of(), null, null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.mts.aadati.dto.response;
+
+import com.mts.aadati.enums.DeletionState;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Progress of a user deletion job, phase is the table currently being emptied.
+// Nothing that identifies the user or the failure cause, anyone holding the job id can read it.
+public record DeletionStatus(DeletionState state,
+                             String phase,
+                             long deletedRows) {
+}
@@ -0,0 +1,9 @@
+package com.mts.aadati.dto.response;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+public record RoleUserCount(String roleName, long users) {
+}
@@ -0,0 +1,20 @@
+package com.mts.aadati.dto.response;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Scalar projection of a user for the streaming export, never attached to the persistence context
+public record UserExportRow(UUID userId,
+                            String firstName,
+                            String lastName,
+                            String username,
+                            String email,
+                            boolean emailVerified,
+                            Instant updatedAt,
+                            Instant createdAt) {
+}
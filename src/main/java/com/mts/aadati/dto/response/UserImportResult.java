@@ -0,0 +1,14 @@
+package com.mts.aadati.dto.response;
+
+import com.mts.aadati.enums.ImportRowStatus;
+
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// One line of the bulk import report, row is the 1-based data row of the input
+public record UserImportResult(long row, ImportRowStatus status, String username, UUID userId, String message) {
+}
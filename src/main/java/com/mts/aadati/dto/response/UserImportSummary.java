@@ -0,0 +1,10 @@
+package com.mts.aadati.dto.response;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Last line of the bulk import report
+public record UserImportSummary(long rows, long created, long rejected) {
+}
@@ -0,0 +1,11 @@
+package com.mts.aadati.dto.response;
+
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+public record UserRoleRow(UUID userId, String roleName) {
+}
@@ -0,0 +1,77 @@
+package com.mts.aadati.entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mts.aadati.enums.DeletionState;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Progress of a user deletion, shared by every node so a status poll can land on any of them.
+// No foreign key to users on purpose: the row reports the deletion after the user is gone.
+@NoArgsConstructor
+@Getter @ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Entity @Table(name = "deletion_job", indexes = {
+        @Index(name = "inx_deletion_job_user_id", columnList = "user_id"),
+        @Index(name = "inx_deletion_job_finished_at", columnList = "finished_at")
+})
+public class DeletionJob {
+
+    @Id
+    @ToString.Include
+    @EqualsAndHashCode.Include
+    @Column(name = "deletion_job_id", nullable = false, updatable = false, columnDefinition = "UUID")
+    private UUID deletionJobId;
+
+    @ToString.Include
+    @JsonIgnore
+    @Column(name = "user_id", nullable = false, updatable = false, columnDefinition = "UUID")
+    private UUID userId;
+
+    @ToString.Include
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", length = 20, nullable = false)
+    private DeletionState state;
+
+    @ToString.Include
+    @Column(name = "phase", length = 50, nullable = false)
+    private String phase;
+
+    @ToString.Include
+    @Column(name = "deleted_rows", nullable = false)
+    private long deletedRows;
+
+    // Kept for operators only, never returned to the client
+    @JsonIgnore
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @ToString.Include
+    @Column(name = "started_at", nullable = false, updatable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant startedAt;
+
+    @ToString.Include
+    @Column(name = "finished_at")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant finishedAt;
+
+    // ===== Builder Constructor =====
+    @Builder
+    public DeletionJob(@NonNull UUID deletionJobId, @NonNull UUID userId) {
+        this.deletionJobId = deletionJobId;
+        this.userId = userId;
+        this.state = DeletionState.RUNNING;
+        this.phase = "pending";
+        this.deletedRows = 0;
+        this.startedAt = Instant.now();
+    }
+}
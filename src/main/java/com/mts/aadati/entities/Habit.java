@@ -5,8 +5,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.NaturalId;
 
+import java.time.DayOfWeek;
 import java.time.Instant;
 import java.util.*;
 
@@ -22,7 +24,10 @@ import java.util.*;
         indexes = {
         @Index(name = "inx_habit_title", columnList = "title"),
         @Index(name = "inx_habit_type", columnList = "type"),
-        @Index(name = "inx_habit_point", columnList = "point")
+        @Index(name = "inx_habit_point", columnList = "point"),
+        @Index(name = "inx_habit_user_title_id", columnList = "user_id, title, habit_id"),
+        @Index(name = "inx_habit_user_schedule_mask", columnList = "user_id, schedule_mask"),
+        @Index(name = "inx_habit_schedule_mask", columnList = "schedule_mask, is_active")
 })
 public class Habit {
 
@@ -66,6 +71,12 @@ public class Habit {
     @Setter
     private boolean isActive;
 
+    // Days the habit applies to, bit (day.getValue() - 1) per DayOfWeek, Monday in the lowest bit.
+    // Written together with habitDayWeeks, so "due on a day" is a single-table lookup
+    @ToString.Include
+    @Column(name = "schedule_mask", nullable = false, columnDefinition = "INTEGER NOT NULL DEFAULT 0")
+    private int scheduleMask;
+
     @ToString.Include
     @Column(name = "updated_at" , nullable = false)
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
@@ -99,6 +110,7 @@ public class Habit {
     @ToString.Exclude
     @ManyToMany(cascade = {CascadeType.DETACH,CascadeType.MERGE,CascadeType.PERSIST,CascadeType.REFRESH},
     fetch = FetchType.LAZY )
+    @BatchSize(size = 50)
     @JoinTable(name = "habit_day_of_week",
             joinColumns = @JoinColumn(name = "habit_id" ,nullable = false),
             inverseJoinColumns = @JoinColumn(name ="day_week_id",nullable = false ))
@@ -135,6 +147,39 @@ public class Habit {
         return point + (point == 1.0 ? " Point" : " Points");
     }
 
+    // ===== Helper Method for Schedule =====
+    public void setSchedule(Collection<HabitDayWeek> dayWeeks) {
+        habitDayWeeks.clear();
+        habitDayWeeks.addAll(dayWeeks);
+        scheduleMask = maskOf(dayWeeks);
+    }
+    public boolean isScheduledFor(DayOfWeek day) {
+        return (scheduleMask & bitOf(day)) != 0;
+    }
+
+    public static int bitOf(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+    public static int maskOf(Collection<HabitDayWeek> dayWeeks) {
+        int mask = 0;
+        for (HabitDayWeek dayWeek : dayWeeks) {
+            mask |= bitOf(dayWeek.getDayOfWeek());
+        }
+        return mask;
+    }
+    // Every mask with the day's bit set: an IN over these 64 values can use a plain index,
+    // which a (mask & bit) != 0 predicate cannot
+    public static List<Integer> masksWith(DayOfWeek day) {
+        int bit = bitOf(day);
+        List<Integer> masks = new ArrayList<>(64);
+        for (int mask = 0; mask < 128; mask++) {
+            if ((mask & bit) != 0) {
+                masks.add(mask);
+            }
+        }
+        return masks;
+    }
+
     // ===== Helper Method for is Active =====
     public boolean canBeCompleted() {
         return isActive;
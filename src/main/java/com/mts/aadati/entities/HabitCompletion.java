@@ -17,7 +17,9 @@ import java.util.UUID;
 @NoArgsConstructor
 @Getter @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @ToString
-@Entity @Table(name ="habit_completion" , indexes = @Index(name = "inx_habit_completion_checker" , columnList = "complete"))
+@Entity @Table(name ="habit_completion" , indexes = {
+        @Index(name = "inx_habit_completion_checker" , columnList = "complete"),
+        @Index(name = "inx_habit_completion_completed_at_id" , columnList = "completed_at, habit_completion_id")})
 public class HabitCompletion {
 
     @Id
@@ -29,7 +29,8 @@ import java.util.UUID;
         indexes = {
                 @Index(name = "inx_habit_task_title", columnList = "title"),
                 @Index(name = "inx_habit_task_start_date", columnList = "start_date"),
-                @Index(name = "inx_habit_task_recurrence_type", columnList = "recurrence_type")}
+                @Index(name = "inx_habit_task_recurrence_type", columnList = "recurrence_type"),
+                @Index(name = "inx_habit_task_user_title_id", columnList = "user_id, title, habit_task_id")}
 )
 public class HabitTask {
 
@@ -0,0 +1,107 @@
+package com.mts.aadati.entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.mts.aadati.enums.MailOutboxStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@NoArgsConstructor
+@Getter @ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Entity @Table(name = "mail_outbox", indexes = {
+        @Index(name = "inx_mail_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+})
+public class MailOutbox {
+
+    @Id
+    @ToString.Include
+    @EqualsAndHashCode.Include
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "mail_outbox_id", nullable = false, updatable = false, columnDefinition = "UUID")
+    private UUID mailOutboxId;
+
+    @ToString.Include
+    @Column(name = "recipient", length = 100, nullable = false, updatable = false)
+    private String recipient;
+
+    @ToString.Include
+    @Column(name = "subject", length = 200, nullable = false, updatable = false)
+    private String subject;
+
+    @ToString.Exclude
+    @Column(name = "body", columnDefinition = "TEXT", nullable = false, updatable = false)
+    private String body;
+
+    @ToString.Include
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private MailOutboxStatus status;
+
+    @ToString.Include
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // Next time the row may be claimed: retry time while PENDING, lease expiry while SENDING
+    @ToString.Include
+    @Column(name = "next_attempt_at", nullable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant nextAttemptAt;
+
+    @ToString.Include
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @ToString.Include
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant createdAt;
+
+    @ToString.Include
+    @Column(name = "sent_at")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant sentAt;
+
+    // ===== Builder Constructor =====
+    @Builder
+    public MailOutbox(@NonNull String recipient, @NonNull String subject, @NonNull String body) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+        this.status = MailOutboxStatus.PENDING;
+        this.attempts = 0;
+    }
+
+    // ===== Helper Method for Dispatch =====
+    public void claim(Instant leaseUntil) {
+        this.status = MailOutboxStatus.SENDING;
+        this.nextAttemptAt = leaseUntil;
+    }
+    public void markSent() {
+        this.status = MailOutboxStatus.SENT;
+        this.sentAt = Instant.now();
+        this.lastError = null;
+    }
+    public void markFailed(String error, Instant retryAt, int maxAttempts) {
+        this.attempts++;
+        this.lastError = error == null ? null : error.substring(0, Math.min(error.length(), 500));
+        this.status = attempts >= maxAttempts ? MailOutboxStatus.FAILED : MailOutboxStatus.PENDING;
+        this.nextAttemptAt = retryAt;
+    }
+
+    // ===== Lifecycle Callback ======
+    @PrePersist
+    private void onCreate() {
+        createdAt = Instant.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
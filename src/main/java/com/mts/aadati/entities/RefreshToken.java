@@ -0,0 +1,93 @@
+package com.mts.aadati.entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@NoArgsConstructor
+@Getter @ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Entity @Table(name = "refresh_token", indexes = {
+        @Index(name = "inx_refresh_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "inx_refresh_token_family", columnList = "family_id"),
+        @Index(name = "inx_refresh_token_expires_at", columnList = "expires_at")
+})
+public class RefreshToken {
+
+    @Id
+    @ToString.Include
+    @EqualsAndHashCode.Include
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "refresh_token_id", nullable = false, updatable = false, columnDefinition = "UUID")
+    private UUID refreshTokenId;
+
+    // Only the HMAC of the token is stored, never the token itself
+    @JsonIgnore
+    @ToString.Exclude
+    @Column(name = "token_hash", nullable = false, updatable = false, length = 64)
+    private String tokenHash;
+
+    // Every rotation of a login stays in the same family
+    @ToString.Include
+    @Column(name = "family_id", nullable = false, updatable = false, columnDefinition = "UUID")
+    private UUID familyId;
+
+    @ToString.Include
+    @Column(name = "used", nullable = false)
+    private boolean used;
+
+    @ToString.Include
+    @Column(name = "revoked", nullable = false)
+    private boolean revoked;
+
+    @ToString.Include
+    @Column(name = "expires_at", nullable = false, updatable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant expiresAt;
+
+    @ToString.Include
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant createdAt;
+
+    // ===== Relationship =====
+    @ToString.Exclude
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // ===== Builder Constructor =====
+    @Builder
+    public RefreshToken(@NonNull String tokenHash, @NonNull UUID familyId, @NonNull User user, @NonNull Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.familyId = familyId;
+        this.user = user;
+        this.expiresAt = expiresAt;
+        this.used = false;
+        this.revoked = false;
+    }
+
+    // ===== Helper Method for Rotation =====
+    public boolean isExpired() {
+        return expiresAt.isBefore(Instant.now());
+    }
+
+    // ===== Lifecycle Callback ======
+    @PrePersist
+    private void onCreate() {
+        createdAt = Instant.now();
+    }
+}
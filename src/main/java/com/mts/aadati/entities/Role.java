@@ -63,6 +63,11 @@ public class Role {
     @JsonIgnore
     private boolean isDeleted;
 
+    // Position of the role in the token role bitset, given once on creation and never reused
+    @ToString.Include
+    @Column(name = "bit", unique = true, updatable = false)
+    @JsonIgnore
+    private Integer bit;
 
     // ===== RelationShip =====
     @JsonIgnore
@@ -77,6 +82,13 @@ public class Role {
         this.isDeleted = false;
     }
 
+    public void assignBit(int bit) {
+        if (this.bit != null) {
+            throw new IllegalStateException("Role " + name + " already has bit " + this.bit);
+        }
+        this.bit = bit;
+    }
+
     // ===== Lifecycle Callback ======
     @PrePersist
     private void onCreate() {
@@ -22,10 +22,19 @@ import java.util.*;
 @Entity @Table(name = "users" , indexes = {
         @Index(name = "inx_user_first_name" , columnList = "first_name"),
         @Index(name = "inx_user_last_name" , columnList = "last_name"),
-        @Index(name = "inx_user_email" , columnList = "email")
+        @Index(name = "inx_user_email" , columnList = "email"),
+        // Keyset order of the user export
+        @Index(name = "inx_user_created_at_id" , columnList = "created_at, user_id")
+}, uniqueConstraints = {
+        // Named so a violation can be mapped back to the field (see UserService.addUserEntity)
+        @UniqueConstraint(name = User.UK_USERNAME, columnNames = "username"),
+        @UniqueConstraint(name = User.UK_EMAIL, columnNames = "email")
 })
 public class User {
 
+    public static final String UK_USERNAME = "uk_users_username";
+    public static final String UK_EMAIL = "uk_users_email";
+
     @Id
     @EqualsAndHashCode.Include
     @GeneratedValue(strategy = GenerationType.UUID )
@@ -46,7 +55,7 @@ public class User {
     @Setter
     private String lastName ;
 
-    @Column(name = "username", nullable = false, unique = true, length = 30)
+    @Column(name = "username", nullable = false, length = 30)
     @NotBlank(message = "Username is required")
     @Size(min = 3, max = 30, message = "Username must be between 3 and 30 characters")
     @Setter
@@ -59,7 +68,7 @@ public class User {
     @Setter
     private String password ;
 
-    @Column(name = "email", nullable = false, unique = true, length = 254) // RFC standard
+    @Column(name = "email", nullable = false, length = 254) // RFC standard
     @NotBlank(message = "Email is required")
     @Email(message = "Please provide a valid email address")
     @Size(min = 5, max = 254, message = "Email must be between 5 and 254 characters")
@@ -78,6 +87,11 @@ public class User {
     @JsonFormat(shape = JsonFormat.Shape.STRING,pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
     private Instant createdAt;
 
+    // Set while the account is being deleted and renewed by the deletion job at every step, see DeletionService
+    @JsonIgnore
+    @Column(name = "deletion_started_at")
+    private Instant deletionStartedAt;
+
     // ===== Relationship =====
     @JsonIgnore
     @OneToMany(mappedBy = "user" ,fetch = FetchType.LAZY ,cascade = CascadeType.ALL )
@@ -140,5 +154,11 @@ public class User {
         return this ;
     }
 
+    // ===== Helper Method for Deletion =====
+    @JsonIgnore
+    public boolean isDeleting(){
+        return deletionStartedAt != null ;
+    }
+
 
 }
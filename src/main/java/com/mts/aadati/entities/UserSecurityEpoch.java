@@ -0,0 +1,46 @@
+package com.mts.aadati.entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// No foreign key to users on purpose: the row must outlive a deleted user so its tokens stay revoked
+@NoArgsConstructor
+@Getter @ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Entity @Table(name = "user_security_epoch",
+        indexes = @Index(name = "inx_user_security_epoch_updated_at", columnList = "updated_at")
+)
+public class UserSecurityEpoch {
+
+    @Id
+    @ToString.Include
+    @EqualsAndHashCode.Include
+    @Column(name = "user_id", nullable = false, updatable = false, columnDefinition = "UUID")
+    private UUID userId;
+
+    @ToString.Include
+    @Column(name = "epoch", nullable = false)
+    private long epoch;
+
+    @ToString.Include
+    @Column(name = "updated_at", nullable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant updatedAt;
+
+    // ===== Builder Constructor =====
+    @Builder
+    public UserSecurityEpoch(@NonNull UUID userId, long epoch) {
+        this.userId = userId;
+        this.epoch = epoch;
+        this.updatedAt = Instant.now();
+    }
+}
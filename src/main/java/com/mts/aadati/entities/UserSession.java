@@ -0,0 +1,96 @@
+package com.mts.aadati.entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mts.aadati.enums.SessionEventType;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@NoArgsConstructor
+@Getter @ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Entity @Table(name = "user_session", indexes = {
+        @Index(name = "inx_user_session_user_created_at", columnList = "user_id, created_at")
+})
+public class UserSession {
+
+    @Id
+    @ToString.Include
+    @EqualsAndHashCode.Include
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "user_session_id", nullable = false, updatable = false, columnDefinition = "UUID")
+    private UUID userSessionId;
+
+    @ToString.Include
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 20, nullable = false, updatable = false)
+    private SessionEventType eventType;
+
+    @ToString.Include
+    @Column(name = "ip_address", length = 45, updatable = false)
+    private String ipAddress;
+
+    @ToString.Exclude
+    @Column(name = "user_agent", length = 512, updatable = false)
+    private String userAgent;
+
+    @ToString.Include
+    @Column(name = "os", length = 100, updatable = false)
+    private String os;
+
+    @ToString.Include
+    @Column(name = "browser", length = 100, updatable = false)
+    private String browser;
+
+    @ToString.Include
+    @Column(name = "device", length = 100, updatable = false)
+    private String device;
+
+    @ToString.Include
+    @Column(name = "country", length = 100, updatable = false)
+    private String country;
+
+    @ToString.Include
+    @Column(name = "city", length = 100, updatable = false)
+    private String city;
+
+    @ToString.Include
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant createdAt;
+
+    // ===== Relationship =====
+    @ToString.Exclude
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "user_id", nullable = false, updatable = false)
+    private User user;
+
+    // ===== Builder Constructor =====
+    @Builder
+    public UserSession(@NonNull User user, @NonNull SessionEventType eventType, String ipAddress, String userAgent,
+                       String os, String browser, String device, String country, String city,
+                       @NonNull Instant createdAt) {
+        this.user = user;
+        this.eventType = eventType;
+        this.ipAddress = ipAddress;
+        this.userAgent = userAgent;
+        this.os = os;
+        this.browser = browser;
+        this.device = device;
+        this.country = country;
+        this.city = city;
+        this.createdAt = createdAt;
+    }
+}
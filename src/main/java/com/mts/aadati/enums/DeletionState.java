@@ -0,0 +1,12 @@
+package com.mts.aadati.enums;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+public enum DeletionState {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
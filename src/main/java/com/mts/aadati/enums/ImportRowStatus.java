@@ -0,0 +1,13 @@
+package com.mts.aadati.enums;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+public enum ImportRowStatus {
+    CREATED,
+    INVALID,
+    DUPLICATE,
+    FAILED
+}
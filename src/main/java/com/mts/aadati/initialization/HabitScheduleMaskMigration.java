@@ -0,0 +1,72 @@
+package com.mts.aadati.initialization;
+
+import com.mts.aadati.repository.HabitRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Fills habit.schedule_mask from the habit_day_of_week join table for habits saved before the
+// column existed. Only habits whose mask is still 0 while they have days are touched, so running
+// it on every start is idempotent; turn it off once every node has written masks for a while.
+// It runs once every singleton exists, before the web server starts, so requests only reach a node
+// after it. Until it has succeeded, isComplete() is false and the day-of-week queries also read the
+// join table for habits at mask 0; a failed run is retried in the background.
+@Component
+@Slf4j
+public class HabitScheduleMaskMigration implements SmartInitializingSingleton {
+
+    private final HabitRepository habitRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private volatile boolean complete;
+
+    public HabitScheduleMaskMigration(HabitRepository habitRepository,
+                                      TransactionTemplate transactionTemplate,
+                                      @Value("${habit.schedule-mask.backfill:true}") boolean enabled) {
+        this.habitRepository = habitRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    @Scheduled(fixedDelayString = "${habit.schedule-mask.backfill-retry-interval:300000}")
+    public void retry() {
+        if (!complete) {
+            backfill();
+        }
+    }
+
+    // Masks can be trusted alone: the backfill succeeded, or it is switched off because they all are
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private synchronized void backfill() {
+        if (!enabled) {
+            complete = true;
+            return;
+        }
+        if (complete) {
+            return;
+        }
+        try {
+            Integer updated = transactionTemplate.execute(status -> habitRepository.backfillScheduleMasks());
+            complete = true;
+            log.info("Habit schedule masks backfilled for {} habits", updated);
+        } catch (RuntimeException e) {
+            log.error("Habit schedule mask backfill failed, day queries read the join table until it succeeds", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.mts.aadati.repository;
+
+import com.mts.aadati.entities.DeletionJob;
+import com.mts.aadati.enums.DeletionState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Repository
+public interface DeletionJobRepository extends JpaRepository<DeletionJob, UUID> {
+
+    // ===== Find =====
+    // The job a resumed deletion continues, served by inx_deletion_job_user_id
+    Optional<DeletionJob> findFirstByUserIdOrderByStartedAtDesc(UUID userId);
+
+    // ===== Progress =====
+    @Modifying
+    @Query("UPDATE DeletionJob j SET j.state = :state, j.phase = :phase, j.deletedRows = :deletedRows, "
+            + "j.finishedAt = NULL WHERE j.deletionJobId = :jobId")
+    int updateProgress(@Param("jobId") UUID jobId, @Param("state") DeletionState state,
+                       @Param("phase") String phase, @Param("deletedRows") long deletedRows);
+
+    @Modifying
+    @Query("UPDATE DeletionJob j SET j.state = :state, j.deletedRows = :deletedRows, j.lastError = :lastError, "
+            + "j.finishedAt = :now WHERE j.deletionJobId = :jobId")
+    int finish(@Param("jobId") UUID jobId, @Param("state") DeletionState state, @Param("deletedRows") long deletedRows,
+               @Param("lastError") String lastError, @Param("now") Instant now);
+
+    // ===== Purge =====
+    @Modifying
+    @Query("DELETE FROM DeletionJob j WHERE j.finishedAt < :cutoff AND j.state = com.mts.aadati.enums.DeletionState.COMPLETED")
+    int deleteFinishedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,55 @@
+package com.mts.aadati.repository;
+
+import com.mts.aadati.entities.HabitCompletion;
+import com.mts.aadati.entities.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Keyset pages of a user's completions, newest completion first and the uncompleted ones
+// (completed_at is null) last, ties broken by id. Each page seeks past the last row of the
+// previous one instead of skipping an OFFSET, so deep pages cost the same as the first.
+@Repository
+public interface HabitCompletionSeekRepository extends org.springframework.data.repository.Repository<HabitCompletion, UUID> {
+
+    @Query("""
+            SELECT c FROM HabitCompletion c WHERE c.habit.user = :user
+            ORDER BY c.completedAt DESC NULLS LAST, c.habitCompletionId DESC
+           """)
+    List<HabitCompletion> findFirstPage(@Param("user") User user, Pageable pageable);
+
+    @Query("""
+            SELECT c FROM HabitCompletion c WHERE c.habit.user = :user AND
+            (c.completedAt < :completedAt OR
+             (c.completedAt = :completedAt AND c.habitCompletionId < :completionId) OR
+             c.completedAt IS NULL)
+            ORDER BY c.completedAt DESC NULLS LAST, c.habitCompletionId DESC
+           """)
+    List<HabitCompletion> findPageAfter(@Param("user") User user,
+                                        @Param("completedAt") Instant completedAt,
+                                        @Param("completionId") UUID completionId,
+                                        Pageable pageable);
+
+    // Once the cursor is among the uncompleted rows only those remain, by id
+    @Query("""
+            SELECT c FROM HabitCompletion c WHERE c.habit.user = :user AND
+            c.completedAt IS NULL AND c.habitCompletionId < :completionId
+            ORDER BY c.habitCompletionId DESC
+           """)
+    List<HabitCompletion> findUncompletedPageAfter(@Param("user") User user,
+                                                   @Param("completionId") UUID completionId,
+                                                   Pageable pageable);
+
+    @Query("SELECT COUNT(c) FROM HabitCompletion c WHERE c.habit.user = :user")
+    long countByUser(@Param("user") User user);
+}
@@ -1,17 +1,20 @@
 
 package com.mts.aadati.repository;
 
+import com.mts.aadati.dto.response.HabitDayWeekRow;
 import com.mts.aadati.entities.Habit;
 import com.mts.aadati.entities.HabitCategory;
-import com.mts.aadati.entities.HabitDayWeek;
 import com.mts.aadati.entities.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.DayOfWeek;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -24,9 +27,19 @@ import java.util.UUID;
 @Repository
 public interface HabitRepository extends JpaRepository<Habit, UUID> {
 
+    // Habits scheduled on :day. Until the schedule mask backfill has run (:unmigrated), a habit still at
+    // mask 0 may be one saved before the column existed, so its day links are read from the join table.
+    String SCHEDULED_ON = """
+            (h.scheduleMask IN :scheduleMasks OR (:unmigrated = TRUE AND h.scheduleMask = 0 AND EXISTS (
+                SELECT 1 FROM Habit l JOIN l.habitDayWeeks d WHERE l = h AND d.dayOfWeek = :day)))
+            """;
+
     // ===== Find =====
     Optional<Habit> findByHabitIdAndUserAndIsActiveTrue(UUID habitId, User user);
-    List<Habit> findByHabitDayWeeks(HabitDayWeek habitDayWeek);
+    @Query("SELECT h FROM Habit h WHERE " + SCHEDULED_ON)
+    List<Habit> findScheduledOn(@Param("day") DayOfWeek day,
+                                @Param("scheduleMasks") Collection<Integer> scheduleMasks,
+                                @Param("unmigrated") boolean unmigrated);
     // ===== Containing Search =====
     List<Habit> findByTitleContainingIgnoreCaseAndUserAndIsActiveTrue(String title, User user);
 
@@ -35,12 +48,15 @@ public interface HabitRepository extends JpaRepository<Habit, UUID> {
             SELECT h FROM Habit h WHERE h.user = :user AND 
             h.isActive = TRUE AND 
             (:category IS NULL OR h.habitCategory = :category) AND 
-            (:dayWeek IS NULL OR :dayWeek MEMBER OF h.habitDayWeeks) AND
+            (:day IS NULL OR h.scheduleMask IN :scheduleMasks OR (:unmigrated = TRUE AND h.scheduleMask = 0 AND EXISTS (
+                SELECT 1 FROM Habit l JOIN l.habitDayWeeks d WHERE l = h AND d.dayOfWeek = :day))) AND
             (:type IS NULL OR h.type = :type)
            """)
     Page<Habit> filterHabits(@Param("user") User user,
                              @Param("category") HabitCategory category,
-                             @Param("dayWeek") HabitDayWeek dayWeek,
+                             @Param("day") DayOfWeek day,
+                             @Param("scheduleMasks") Collection<Integer> scheduleMasks,
+                             @Param("unmigrated") boolean unmigrated,
                              @Param("type") Boolean type,
                              Pageable pageable);
 
@@ -48,11 +64,36 @@ public interface HabitRepository extends JpaRepository<Habit, UUID> {
     Page<Habit> findAllByUserAndIsActiveTrue(User user, Pageable pageable);
     Page<Habit> findAllByUserAndIsActiveFalse(User user, Pageable pageable);
     Page<Habit> findByUserAndHabitCategoryAndIsActiveTrue(User user, HabitCategory habitCategory, Pageable pageable);
-    Page<Habit> findByUserAndHabitDayWeeksContainingAndIsActiveTrue(User user, HabitDayWeek habitDayWeek, Pageable pageable);
+    @Query("SELECT h FROM Habit h WHERE h.user = :user AND h.isActive = TRUE AND " + SCHEDULED_ON)
+    Page<Habit> findActiveScheduledOn(@Param("user") User user,
+                                      @Param("day") DayOfWeek day,
+                                      @Param("scheduleMasks") Collection<Integer> scheduleMasks,
+                                      @Param("unmigrated") boolean unmigrated,
+                                      Pageable pageable);
     Page<Habit> findByUserAndTypeAndIsActiveTrue(User user, boolean type ,Pageable pageable);
     Page<Habit> findByUserAndPointAndIsActiveTrue(User user, double point ,Pageable pageable);
     Optional<Habit> findByHabitIdAndUser(UUID habitId, User user);
 
+    // Day-of-week ids of one page of habits in a single query, read from the join table only
+    @Query("SELECT new com.mts.aadati.dto.response.HabitDayWeekRow(h.habitId, d.dayWeekId) " +
+            "FROM Habit h JOIN h.habitDayWeeks d WHERE h.habitId IN :habitIds")
+    List<HabitDayWeekRow> findDayWeekIdsByHabitIds(@Param("habitIds") Collection<UUID> habitIds);
+
+
+    // ===== Keyset Pages, by (title, habitId) =====
+    @Query("SELECT h FROM Habit h WHERE h.user = :user AND h.isActive = TRUE ORDER BY h.title, h.habitId")
+    List<Habit> findActiveFirstPage(@Param("user") User user, Pageable pageable);
+
+    @Query("""
+            SELECT h FROM Habit h WHERE h.user = :user AND h.isActive = TRUE AND
+            (h.title > :title OR (h.title = :title AND h.habitId > :habitId))
+            ORDER BY h.title, h.habitId
+           """)
+    List<Habit> findActivePageAfter(@Param("user") User user,
+                                    @Param("title") String title,
+                                    @Param("habitId") UUID habitId,
+                                    Pageable pageable);
+
 
     // ===== Exists =====
     boolean existsByTitleAndUserAndIsActiveTrue(String title, User user);
@@ -64,6 +105,46 @@ public interface HabitRepository extends JpaRepository<Habit, UUID> {
     long countByUserAndPointGreaterThanAndIsActiveTrue(User user, double point);
     long countByUserAndTypeAndIsActiveTrue(User user, boolean type);
     long countByUserAndHabitCategoryAndIsActiveTrue(User user, HabitCategory category);
-    long countByUserAndHabitDayWeeksContainingAndIsActiveTrue(User user, HabitDayWeek habitDayWeek);
+
+    @Query("SELECT COUNT(h) FROM Habit h WHERE h.user = :user AND h.isActive = TRUE AND " + SCHEDULED_ON)
+    long countActiveScheduledOn(@Param("user") User user,
+                                @Param("day") DayOfWeek day,
+                                @Param("scheduleMasks") Collection<Integer> scheduleMasks,
+                                @Param("unmigrated") boolean unmigrated);
+
+    @Query("SELECT COUNT(h) FROM Habit h WHERE " + SCHEDULED_ON)
+    long countScheduledOn(@Param("day") DayOfWeek day,
+                          @Param("scheduleMasks") Collection<Integer> scheduleMasks,
+                          @Param("unmigrated") boolean unmigrated);
+
+    // ===== Schedule Mask =====
+    // Fills schedule_mask from the habit_day_of_week join table for habits written before the column existed
+    @Modifying
+    @Query(value = """
+            UPDATE habit h SET schedule_mask = (
+                SELECT COALESCE(SUM(DISTINCT CASE d.day_of_week
+                    WHEN 'MONDAY' THEN 1 WHEN 'TUESDAY' THEN 2 WHEN 'WEDNESDAY' THEN 4
+                    WHEN 'THURSDAY' THEN 8 WHEN 'FRIDAY' THEN 16 WHEN 'SATURDAY' THEN 32
+                    WHEN 'SUNDAY' THEN 64 ELSE 0 END), 0)
+                FROM habit_day_of_week hd JOIN habit_day_week d ON d.day_week_id = hd.day_week_id
+                WHERE hd.habit_id = h.habit_id)
+            WHERE h.schedule_mask = 0 AND
+            EXISTS (SELECT 1 FROM habit_day_of_week hd WHERE hd.habit_id = h.habit_id)
+           """, nativeQuery = true)
+    int backfillScheduleMasks();
+
+    // Recomputes the masks of the habits linked to one habit_day_week row after its day changed
+    @Modifying
+    @Query(value = """
+            UPDATE habit h SET schedule_mask = (
+                SELECT COALESCE(SUM(DISTINCT CASE d.day_of_week
+                    WHEN 'MONDAY' THEN 1 WHEN 'TUESDAY' THEN 2 WHEN 'WEDNESDAY' THEN 4
+                    WHEN 'THURSDAY' THEN 8 WHEN 'FRIDAY' THEN 16 WHEN 'SATURDAY' THEN 32
+                    WHEN 'SUNDAY' THEN 64 ELSE 0 END), 0)
+                FROM habit_day_of_week hd JOIN habit_day_week d ON d.day_week_id = hd.day_week_id
+                WHERE hd.habit_id = h.habit_id)
+            WHERE h.habit_id IN (SELECT hd.habit_id FROM habit_day_of_week hd WHERE hd.day_week_id = :dayWeekId)
+           """, nativeQuery = true)
+    int recomputeScheduleMasks(@Param("dayWeekId") long dayWeekId);
 
 }
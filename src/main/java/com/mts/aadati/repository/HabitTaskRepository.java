@@ -48,11 +48,26 @@ public interface HabitTaskRepository extends JpaRepository<HabitTask, UUID> {
     Page<HabitTask> findByUserAndTaskPriorityLevelAndIsActiveTrue(User user, TaskPriorityLevel taskPriorityLevel, Pageable pageable);
     Page<HabitTask> findByUserAndRecurrenceTypeAndIsActiveTrue(User user, RecurrenceType recurrenceType, Pageable pageable);
 
+    // ===== Keyset Pages, by (title, habitTaskId) =====
+    @Query("SELECT ht FROM HabitTask ht WHERE ht.user = :user AND ht.isActive = TRUE ORDER BY ht.title, ht.habitTaskId")
+    List<HabitTask> findActiveFirstPage(@Param("user") User user, Pageable pageable);
+
+    @Query("""
+            SELECT ht FROM HabitTask ht WHERE ht.user = :user AND ht.isActive = TRUE AND
+            (ht.title > :title OR (ht.title = :title AND ht.habitTaskId > :habitTaskId))
+            ORDER BY ht.title, ht.habitTaskId
+           """)
+    List<HabitTask> findActivePageAfter(@Param("user") User user,
+                                        @Param("title") String title,
+                                        @Param("habitTaskId") UUID habitTaskId,
+                                        Pageable pageable);
+
     // ===== Exist =====
     boolean existsByUserAndHabitTaskIdAndIsActiveTrue(User user, UUID habitTaskId);
     boolean existsByUserAndTitleAndIsActiveTrue(User user, String title);
 
     // ===== Count =====
+    long countByUserAndIsActiveTrue(User user);
     long countByUserAndStartDateAndIsActiveTrue(User user, Instant startDate);
     long countByUserAndRecurrenceTypeAndIsActiveTrue(User user, RecurrenceType recurrenceType);
     long countByUserAndTaskPriorityLevelAndIsActiveTrue(User user, TaskPriorityLevel taskPriorityLevel);
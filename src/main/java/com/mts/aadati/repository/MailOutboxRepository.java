@@ -0,0 +1,48 @@
+package com.mts.aadati.repository;
+
+import com.mts.aadati.entities.MailOutbox;
+import com.mts.aadati.enums.MailOutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, UUID> {
+
+    // ===== Claim =====
+    // Lock timeout -2 is Hibernate's SKIP LOCKED: concurrent dispatchers never wait on, or take, the same rows.
+    // SENDING rows whose lease expired (the node died mid-send) are claimed again
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT m FROM MailOutbox m
+            WHERE m.status IN (com.mts.aadati.enums.MailOutboxStatus.PENDING, com.mts.aadati.enums.MailOutboxStatus.SENDING)
+            AND m.nextAttemptAt <= :now
+            ORDER BY m.nextAttemptAt
+           """)
+    List<MailOutbox> claimDue(@Param("now") Instant now, Pageable pageable);
+
+    // ===== count =====
+    long countByStatus(MailOutboxStatus status);
+
+    // ===== Purge =====
+    @Modifying
+    @Query("DELETE FROM MailOutbox m WHERE m.status = com.mts.aadati.enums.MailOutboxStatus.SENT AND m.sentAt < :before")
+    int deleteSentBefore(@Param("before") Instant before);
+}
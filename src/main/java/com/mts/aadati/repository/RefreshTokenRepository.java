@@ -0,0 +1,51 @@
+package com.mts.aadati.repository;
+
+import com.mts.aadati.entities.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+
+    // ===== Find =====
+    // Single indexed lookup that also brings the user and its roles for the new access token
+    @Query("""
+            SELECT t FROM RefreshToken t
+            JOIN FETCH t.user u
+            LEFT JOIN FETCH u.roles
+            WHERE t.tokenHash = :tokenHash
+           """)
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") String tokenHash);
+
+    // ===== Claim =====
+    // Marks a live token used; 0 rows means it was already used or revoked, e.g. by a concurrent rotation
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.used = true WHERE t.tokenHash = :tokenHash AND t.used = false AND t.revoked = false")
+    int claim(@Param("tokenHash") String tokenHash);
+
+    // ===== Revoke =====
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.familyId = :familyId AND t.revoked = false")
+    int revokeFamily(@Param("familyId") UUID familyId);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.user.userId = :userId AND t.revoked = false")
+    int revokeAllByUserId(@Param("userId") UUID userId);
+
+    // ===== Purge =====
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
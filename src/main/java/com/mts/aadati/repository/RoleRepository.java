@@ -3,6 +3,9 @@ package com.mts.aadati.repository;
 
 import com.mts.aadati.entities.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -20,9 +23,23 @@ public interface RoleRepository extends JpaRepository<Role, UUID> {
     // ===== Find =====
     List<Role> findByNameContainingIgnoreCase(String name);
     Optional<Role> findByNameIgnoreCase(String name);
+    Optional<Role> findByName(String name);
+    List<Role> findAllByBitIsNullOrderByCreatedAtAscRoleIdAsc();
+
+    @Query("SELECT MAX(r.bit) FROM Role r")
+    Optional<Integer> findMaxBit();
     List<Role> findAllByIsDeletedFalse();
     List<Role> findAllByIsDeletedTrue();
 
+    @Query("SELECT u.userId FROM User u JOIN u.roles r WHERE r.roleId = :roleId")
+    List<UUID> findUserIdsByRoleId(@Param("roleId") UUID roleId);
+
+    // ===== Update =====
+    // Only fills a missing bit, a role never changes bit once it has one
+    @Modifying
+    @Query("UPDATE Role r SET r.bit = :bit WHERE r.roleId = :roleId AND r.bit IS NULL")
+    int assignBit(@Param("roleId") UUID roleId, @Param("bit") int bit);
+
     // ===== count =====
     long countByIsDeletedFalse();
 
@@ -1,13 +1,19 @@
 package com.mts.aadati.repository;
 
+import com.mts.aadati.dto.response.UserExportRow;
+import com.mts.aadati.dto.response.RoleUserCount;
+import com.mts.aadati.dto.response.UserRoleRow;
 import com.mts.aadati.entities.Role;
 import com.mts.aadati.entities.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -25,8 +31,14 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     List<User> findByLastNameContainingIgnoreCase(String lastName);
     List<User> findByEmailContainingIgnoreCase(String email);
     Optional<User> findByFirstNameContainingIgnoreCaseAndLastNameContainingIgnoreCase(String firstName, String lastName);
+    // Paged variants, used by the search until the in-memory index is built
+    List<User> findByFirstNameContainingIgnoreCase(String firstName, Pageable pageable);
+    List<User> findByLastNameContainingIgnoreCase(String lastName, Pageable pageable);
+    List<User> findByEmailContainingIgnoreCase(String email, Pageable pageable);
     Optional <User> findByUsername(String username);
     Optional <User> findByEmail (String email) ;
+    boolean existsByUsername(String username);
+    boolean existsByEmail(String email);
 
     // ===== Helper Fields Search By Date =====
     List<User> findByUpdatedAt(Instant updatedAt);
@@ -72,4 +84,57 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     @Query("SELECT COUNT(u) FROM User u JOIN u.roles r WHERE r.name = :roleName")
     long countUsersByRole(@Param("roleName") String roleName);
 
+    // ===== Bulk import, which of a chunk's usernames / emails are taken =====
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Every role count in one pass, used to reconcile UserStatistics
+    @Query("SELECT new com.mts.aadati.dto.response.RoleUserCount(r.name, COUNT(u)) " +
+            "FROM User u JOIN u.roles r GROUP BY r.name")
+    List<RoleUserCount> countUsersPerRole();
+
+    // ===== Export, keyset pages on (created_at, user_id) =====
+    @Query("SELECT new com.mts.aadati.dto.response.UserExportRow(" +
+            "u.userId, u.firstName, u.lastName, u.username, u.email, u.emailVerified, u.updatedAt, u.createdAt) " +
+            "FROM User u ORDER BY u.createdAt, u.userId")
+    List<UserExportRow> findExportFirstPage(Pageable pageable);
+
+    @Query("SELECT new com.mts.aadati.dto.response.UserExportRow(" +
+            "u.userId, u.firstName, u.lastName, u.username, u.email, u.emailVerified, u.updatedAt, u.createdAt) " +
+            "FROM User u WHERE u.createdAt > :createdAt OR (u.createdAt = :createdAt AND u.userId > :userId) " +
+            "ORDER BY u.createdAt, u.userId")
+    List<UserExportRow> findExportPageAfter(@Param("createdAt") Instant createdAt,
+                                            @Param("userId") UUID userId,
+                                            Pageable pageable);
+
+    // Role names of one export page in a single query
+    @Query("SELECT new com.mts.aadati.dto.response.UserRoleRow(u.userId, r.name) " +
+            "FROM User u JOIN u.roles r WHERE u.userId IN :userIds")
+    List<UserRoleRow> findRoleNamesByUserIds(@Param("userIds") Collection<UUID> userIds);
+
+    // ===== Deletion marker, see DeletionService =====
+    // Sets or renews the marker; 0 rows means the user no longer exists
+    @Modifying
+    @Query("UPDATE User u SET u.deletionStartedAt = :now WHERE u.userId = :userId")
+    int markDeleting(@Param("userId") UUID userId, @Param("now") Instant now);
+
+    // Takes over a stalled deletion; 0 rows means another node renewed or took it first
+    @Modifying
+    @Query("UPDATE User u SET u.deletionStartedAt = :now WHERE u.userId = :userId AND u.deletionStartedAt = :seen")
+    int claimDeletion(@Param("userId") UUID userId, @Param("seen") Instant seen, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE User u SET u.deletionStartedAt = null WHERE u.userId = :userId")
+    int clearDeleting(@Param("userId") UUID userId);
+
+    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN TRUE ELSE FALSE END " +
+            "FROM User u WHERE u.userId = :userId AND u.deletionStartedAt IS NOT NULL")
+    boolean isDeleting(@Param("userId") UUID userId);
+
+    @Query("SELECT u FROM User u WHERE u.deletionStartedAt < :before ORDER BY u.deletionStartedAt")
+    List<User> findStalledDeletions(@Param("before") Instant before, Pageable pageable);
+
 }
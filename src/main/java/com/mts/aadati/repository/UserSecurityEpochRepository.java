@@ -0,0 +1,53 @@
+package com.mts.aadati.repository;
+
+import com.mts.aadati.dto.response.UserEpochRow;
+import com.mts.aadati.entities.UserSecurityEpoch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Repository
+public interface UserSecurityEpochRepository extends JpaRepository<UserSecurityEpoch, UUID> {
+
+    // ===== Incremental refresh, served by inx_user_security_epoch_updated_at =====
+    List<UserSecurityEpoch> findByUpdatedAtAfter(Instant updatedAt);
+
+    // ===== Bump =====
+    // No clearAutomatically: the caller may still be changing the user in the same persistence context
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserSecurityEpoch e SET e.epoch = e.epoch + 1, e.updatedAt = :now WHERE e.userId = :userId")
+    int increment(@Param("userId") UUID userId, @Param("now") Instant now);
+
+    // Scalar read, not served from a managed entity the update above left stale
+    @Query("SELECT e.epoch FROM UserSecurityEpoch e WHERE e.userId = :userId")
+    Optional<Long> findEpoch(@Param("userId") UUID userId);
+
+    // ===== Bump of many users, one statement each instead of one round trip per user =====
+    // Users that were never bumped get their row at epoch 0 first
+    @Modifying
+    @Query("INSERT INTO UserSecurityEpoch (userId, epoch, updatedAt) " +
+            "SELECT u.userId, 0L, :now FROM User u WHERE u.userId IN :userIds " +
+            "AND NOT EXISTS (SELECT 1 FROM UserSecurityEpoch e WHERE e.userId = u.userId)")
+    int insertMissing(@Param("userIds") Collection<UUID> userIds, @Param("now") Instant now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserSecurityEpoch e SET e.epoch = e.epoch + 1, e.updatedAt = :now WHERE e.userId IN :userIds")
+    int incrementAll(@Param("userIds") Collection<UUID> userIds, @Param("now") Instant now);
+
+    @Query("SELECT new com.mts.aadati.dto.response.UserEpochRow(e.userId, e.epoch) " +
+            "FROM UserSecurityEpoch e WHERE e.userId IN :userIds")
+    List<UserEpochRow> findEpochs(@Param("userIds") Collection<UUID> userIds);
+}
@@ -0,0 +1,16 @@
+package com.mts.aadati.repository;
+
+import com.mts.aadati.entities.UserSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Repository
+public interface UserSessionRepository extends JpaRepository<UserSession, UUID> {
+}
@@ -0,0 +1,22 @@
+package com.mts.aadati.search;
+
+import com.mts.aadati.entities.User;
+
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Published by UserService on every user write, applied to the search index once the write commits
+public record UserChangedEvent(UUID userId, String firstName, String lastName, String email, boolean removed) {
+
+    public static UserChangedEvent saved(User user) {
+        return new UserChangedEvent(user.getUserId(), user.getFirstName(), user.getLastName(), user.getEmail(), false);
+    }
+
+    public static UserChangedEvent removed(UUID userId) {
+        return new UserChangedEvent(userId, null, null, null, true);
+    }
+}
@@ -0,0 +1,347 @@
+package com.mts.aadati.search;
+
+import com.mts.aadati.dto.response.UserExportRow;
+import com.mts.aadati.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// In-memory trigram index over first name, last name and email, so a substring search no longer scans
+// the users table. Built from the table once the application is ready, kept current from
+// UserChangedEvent after each commit, and rebuilt periodically to pick up writes made on other nodes.
+// Until the first build completes search() returns empty and callers fall back to the database.
+@Component
+public class UserSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+    private static final int GRAM = 3;
+
+    public enum Field { FIRST_NAME, LAST_NAME, EMAIL }
+
+    private final UserRepository userRepository;
+    private final int pageSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // Events seen while a rebuild is reading the table, replayed onto the new state; guarded by lock
+    private final List<UserChangedEvent> pending = new ArrayList<>();
+    private State state;
+
+    public UserSearchIndex(UserRepository userRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${user.search.rebuild-page-size:1000}") int pageSize) {
+        this.userRepository = userRepository;
+        this.pageSize = pageSize;
+        meterRegistry.gauge("user.search.index.size", this, UserSearchIndex::size);
+    }
+
+    // ===== Build =====
+    @EventListener(ApplicationReadyEvent.class)
+    void buildOnStartup() {
+        startRebuild();
+    }
+
+    // The full table read runs on its own thread, a scheduler thread only starts it
+    @Scheduled(fixedDelayString = "${user.search.rebuild-interval:3600000}",
+            initialDelayString = "${user.search.rebuild-interval:3600000}")
+    public void scheduledRebuild() {
+        startRebuild();
+    }
+
+    private void startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofPlatform().name("user-search-index").daemon().start(this::rebuild);
+    }
+
+    // Runs with the rebuilding flag set by startRebuild, clears it when done
+    private void rebuild() {
+        long started = System.nanoTime();
+        try {
+            State fresh = new State();
+            List<UserExportRow> rows = userRepository.findExportFirstPage(PageRequest.of(0, pageSize));
+            while (!rows.isEmpty()) {
+                for (UserExportRow row : rows) {
+                    fresh.upsert(row.userId(), row.firstName(), row.lastName(), row.email());
+                }
+                if (rows.size() < pageSize) {
+                    break;
+                }
+                UserExportRow last = rows.get(rows.size() - 1);
+                rows = userRepository.findExportPageAfter(last.createdAt(), last.userId(), PageRequest.of(0, pageSize));
+            }
+
+            lock.writeLock().lock();
+            try {
+                pending.forEach(fresh::apply);
+                state = fresh;
+            } finally {
+                pending.clear();
+                rebuilding.set(false);
+                lock.writeLock().unlock();
+            }
+            logger.info("User search index built with {} users in {} ms",
+                    fresh.live, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending.clear();
+                rebuilding.set(false);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.error("User search index build failed", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (state != null) {
+                state.apply(event);
+            }
+            if (rebuilding.get()) {
+                pending.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ===== Search =====
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return state != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of users matching every term as a case-insensitive substring, best match first:
+    // exact value, then prefix, then start of a word, then anywhere; shorter values rank higher
+    public Optional<List<UUID>> search(Map<Field, String> terms, int page, int size) {
+        Map<Field, String> normalized = new EnumMap<>(Field.class);
+        terms.forEach((field, text) -> normalized.put(field, normalize(text)));
+
+        lock.readLock().lock();
+        try {
+            if (state == null) {
+                return Optional.empty();
+            }
+            List<Ranked> ranked = state.match(normalized);
+            ranked.sort(Comparator.comparingInt(Ranked::score)
+                    .thenComparingInt(Ranked::length)
+                    .thenComparingInt(Ranked::doc));
+
+            int from = (int) Math.min((long) page * size, ranked.size());
+            int to = Math.min(from + size, ranked.size());
+            List<UUID> ids = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ids.add(state.ids.get(ranked.get(i).doc()));
+            }
+            return Optional.of(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return state == null ? 0 : state.live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long gram(String value, int at) {
+        return ((long) value.charAt(at) << 32) | ((long) value.charAt(at + 1) << 16) | value.charAt(at + 2);
+    }
+
+    // 0 exact, 1 prefix, 2 start of a word, 3 anywhere
+    private static int score(String value, String term) {
+        if (value.equals(term)) {
+            return 0;
+        }
+        if (value.startsWith(term)) {
+            return 1;
+        }
+        int at = value.indexOf(term);
+        while (at > 0) {
+            if (!Character.isLetterOrDigit(value.charAt(at - 1))) {
+                return 2;
+            }
+            at = value.indexOf(term, at + 1);
+        }
+        return 3;
+    }
+
+    private record Ranked(int doc, int score, int length) {
+    }
+
+    // ===== Index state, every access holds the lock =====
+    private static final class State {
+
+        private final Map<UUID, Integer> docIds = new HashMap<>();
+        private final List<UUID> ids = new ArrayList<>();
+        // Lower cased field values per document, null once removed
+        private final List<String[]> docs = new ArrayList<>();
+        private final List<Map<Long, Postings>> grams = new ArrayList<>();
+        private int live;
+
+        private State() {
+            for (int i = 0; i < Field.values().length; i++) {
+                grams.add(new HashMap<>());
+            }
+        }
+
+        void apply(UserChangedEvent event) {
+            if (event.removed()) {
+                remove(event.userId());
+            } else {
+                upsert(event.userId(), event.firstName(), event.lastName(), event.email());
+            }
+        }
+
+        void upsert(UUID userId, String firstName, String lastName, String email) {
+            String[] values = {normalize(firstName), normalize(lastName), normalize(email)};
+            Integer doc = docIds.get(userId);
+            if (doc == null) {
+                doc = ids.size();
+                docIds.put(userId, doc);
+                ids.add(userId);
+                docs.add(null);
+            }
+            String[] previous = docs.get(doc);
+            if (previous != null) {
+                unindex(doc, previous);
+            } else {
+                live++;
+            }
+            docs.set(doc, values);
+            for (int field = 0; field < values.length; field++) {
+                String value = values[field];
+                Map<Long, Postings> byGram = grams.get(field);
+                for (int at = 0; at + GRAM <= value.length(); at++) {
+                    byGram.computeIfAbsent(gram(value, at), g -> new Postings()).add(doc);
+                }
+            }
+        }
+
+        void remove(UUID userId) {
+            Integer doc = docIds.get(userId);
+            if (doc == null || docs.get(doc) == null) {
+                return;
+            }
+            unindex(doc, docs.get(doc));
+            docs.set(doc, null);
+            live--;
+        }
+
+        private void unindex(int doc, String[] values) {
+            for (int field = 0; field < values.length; field++) {
+                String value = values[field];
+                Map<Long, Postings> byGram = grams.get(field);
+                for (int at = 0; at + GRAM <= value.length(); at++) {
+                    long gram = gram(value, at);
+                    Postings postings = byGram.get(gram);
+                    if (postings != null) {
+                        postings.remove(doc);
+                        if (postings.size() == 0) {
+                            byGram.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Ranked> match(Map<Field, String> terms) {
+            // Posting lists of every trigram of every term, walked from the shortest
+            List<Postings> lists = new ArrayList<>();
+            for (Map.Entry<Field, String> term : terms.entrySet()) {
+                String text = term.getValue();
+                Map<Long, Postings> byGram = grams.get(term.getKey().ordinal());
+                for (int at = 0; at + GRAM <= text.length(); at++) {
+                    Postings postings = byGram.get(gram(text, at));
+                    if (postings == null) {
+                        return new ArrayList<>();
+                    }
+                    lists.add(postings);
+                }
+            }
+
+            List<Ranked> ranked = new ArrayList<>();
+            if (lists.isEmpty()) {
+                // Every term is shorter than a trigram, check each document in memory
+                for (int doc = 0; doc < docs.size(); doc++) {
+                    rank(doc, terms, ranked);
+                }
+                return ranked;
+            }
+
+            lists.sort(Comparator.comparingInt(Postings::size));
+            Postings shortest = lists.get(0);
+            candidates:
+            for (int i = 0; i < shortest.size(); i++) {
+                int doc = shortest.get(i);
+                for (int l = 1; l < lists.size(); l++) {
+                    if (!lists.get(l).contains(doc)) {
+                        continue candidates;
+                    }
+                }
+                // Trigrams can match out of order, confirm the substring itself
+                rank(doc, terms, ranked);
+            }
+            return ranked;
+        }
+
+        private void rank(int doc, Map<Field, String> terms, List<Ranked> ranked) {
+            String[] values = docs.get(doc);
+            if (values == null) {
+                return;
+            }
+            int score = 0;
+            int length = 0;
+            for (Map.Entry<Field, String> term : terms.entrySet()) {
+                String value = values[term.getKey().ordinal()];
+                if (!value.contains(term.getValue())) {
+                    return;
+                }
+                score += score(value, term.getValue());
+                length += value.length();
+            }
+            ranked.add(new Ranked(doc, score, length));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.mts.aadati.security;
+
+import com.mts.aadati.exeption.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Component
+@Slf4j
+public class PasswordVerificationExecutor {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Counter rejected;
+    private final long retryAfterSeconds;
+
+    public PasswordVerificationExecutor(PasswordEncoder passwordEncoder,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${auth.password.executor.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+                                        @Value("${auth.password.executor.queue-capacity:64}") int queueCapacity,
+                                        @Value("${auth.password.executor.retry-after:2}") long retryAfterSeconds) {
+        this.passwordEncoder = passwordEncoder;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        // Fixed size pool with a bounded queue, AbortPolicy so a full queue fails fast instead of blocking
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "password-verify-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("auth.password.verify")
+                .description("BCrypt password verification latency")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected")
+                .description("Password verifications rejected because the queue was full")
+                .register(meterRegistry);
+        meterRegistry.gauge("auth.password.queue.depth", executor, pool -> pool.getQueue().size());
+        meterRegistry.gauge("auth.password.active", executor, ThreadPoolExecutor::getActiveCount);
+
+        log.info("Password verification executor started with {} threads and queue capacity {}", threads, queueCapacity);
+    }
+
+    // ===== Verify the password off the servlet thread =====
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> hashTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)),
+                    executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Password verification rejected: queue is full ({} pending)", executor.getQueue().size());
+            throw new ServiceBusyException("Too many login attempts in progress, retry later", retryAfterSeconds);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,71 @@
+package com.mts.aadati.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Read-only GrantedAuthority view over a role bitset: iterating hands out the shared authority
+// instances of RoleBitIndex, and a role check is a single bit test
+public final class RoleAuthorities extends AbstractCollection<GrantedAuthority> {
+
+    private final long bits;
+    private final RoleBitIndex roleBitIndex;
+
+    RoleAuthorities(long bits, RoleBitIndex roleBitIndex) {
+        this.bits = bits;
+        this.roleBitIndex = roleBitIndex;
+    }
+
+    public long bits() {
+        return bits;
+    }
+
+    public boolean hasAny(long mask) {
+        return (bits & mask) != 0;
+    }
+
+    @Override
+    public int size() {
+        return Long.bitCount(bits);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof GrantedAuthority authority) || authority.getAuthority() == null) {
+            return false;
+        }
+        int bit = roleBitIndex.bitOf(authority.getAuthority());
+        return bit >= 0 && (bits & (1L << bit)) != 0;
+    }
+
+    @Override
+    public Iterator<GrantedAuthority> iterator() {
+        return new Iterator<>() {
+            private long remaining = bits;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public GrantedAuthority next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                int bit = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                GrantedAuthority authority = roleBitIndex.authorityAt(bit);
+                // Only possible for a bit newer than this node's index, which has no name yet
+                return authority != null ? authority : () -> "ROLE_UNKNOWN_" + bit;
+            }
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.mts.aadati.security;
+
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// hasRole / hasAnyRole as one bit test when the principal carries RoleAuthorities (the token itself
+// keeps a copied list), the string comparison of AuthorityAuthorizationManager otherwise
+final class RoleBitAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthenticationTrustResolver TRUST_RESOLVER = new AuthenticationTrustResolverImpl();
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final RoleBitIndex roleBitIndex;
+    private final String[] roles;
+    private final AuthorityAuthorizationManager<RequestAuthorizationContext> fallback;
+    // Bits of a role never change once assigned, so a fully resolved mask is kept
+    private volatile long mask;
+
+    RoleBitAuthorizationManager(RoleBitIndex roleBitIndex, String... roles) {
+        this.roleBitIndex = roleBitIndex;
+        this.roles = roles;
+        this.fallback = AuthorityAuthorizationManager.hasAnyRole(roles);
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        Authentication current = authentication.get();
+        if (current != null && current.isAuthenticated() && !TRUST_RESOLVER.isAnonymous(current)
+                && current.getPrincipal() instanceof CustomUserDetails userDetails
+                && userDetails.getAuthorities() instanceof RoleAuthorities roleAuthorities) {
+            return roleAuthorities.hasAny(mask()) ? GRANTED : DENIED;
+        }
+        return fallback.authorize(() -> current, context);
+    }
+
+    @Override
+    @Deprecated
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        AuthorizationResult result = authorize(authentication, context);
+        return result == null ? null : new AuthorizationDecision(result.isGranted());
+    }
+
+    private long mask() {
+        long resolved = mask;
+        if (Long.bitCount(resolved) == roles.length) {
+            return resolved;
+        }
+        resolved = roleBitIndex.maskOfRoles(roles);
+        mask = resolved;
+        return resolved;
+    }
+
+    @Override
+    public String toString() {
+        return "RoleBitAuthorizationManager" + Arrays.toString(roles);
+    }
+}
@@ -0,0 +1,174 @@
+package com.mts.aadati.security;
+
+import com.mts.aadati.entities.Role;
+import com.mts.aadati.repository.RoleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Interns every role to a bit of a long. The bit is stored on the role row, given once when the role
+// is created and kept after a soft delete, so every node reads the same bit for a role and a bitset in
+// a token stays meaningful across nodes and restarts, whatever the order the roles are loaded in.
+@Component
+@Slf4j
+public class RoleBitIndex {
+
+    public static final int MAX_ROLES = Long.SIZE;
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final RoleRepository roleRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Replaced as a whole, readers never lock
+    private final AtomicReference<Snapshot> snapshot =
+            new AtomicReference<>(new Snapshot(Map.of(), new GrantedAuthority[MAX_ROLES]));
+
+    public RoleBitIndex(RoleRepository roleRepository, PlatformTransactionManager transactionManager) {
+        this.roleRepository = roleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    private record Snapshot(Map<String, Integer> bits, GrantedAuthority[] authorities) {
+
+        Snapshot with(String name, int bit) {
+            Map<String, Integer> merged = new HashMap<>(bits);
+            merged.put(name, bit);
+            GrantedAuthority[] copy = authorities.clone();
+            // One shared authority instance per role, never allocated per request
+            copy[bit] = new SimpleGrantedAuthority(name);
+            return new Snapshot(Map.copyOf(merged), copy);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        backfill();
+        refresh();
+    }
+
+    // Roles created before the bit column existed get one, in the creation order the index used to derive
+    // bits from, so bitsets already issued keep their meaning. Runs once, later roles get theirs on creation.
+    private void backfill() {
+        List<Role> missing = roleRepository.findAllByBitIsNullOrderByCreatedAtAscRoleIdAsc();
+        if (missing.isEmpty()) {
+            return;
+        }
+        try {
+            int assigned = transactionTemplate.execute(status -> {
+                int next = roleRepository.findMaxBit().map(max -> max + 1).orElse(0);
+                int count = 0;
+                for (Role role : missing) {
+                    if (next >= MAX_ROLES) {
+                        log.error("No role bit left for role {}, it is ignored by the role bit index", role.getName());
+                        continue;
+                    }
+                    if (roleRepository.assignBit(role.getRoleId(), next) == 1) {
+                        next++;
+                        count++;
+                    }
+                }
+                return count;
+            });
+            log.info("Role bits assigned to {} existing roles", assigned);
+        } catch (DataIntegrityViolationException e) {
+            // Another node backfilled at the same time, its bits are the ones refresh() reads
+            log.info("Role bits were assigned by another node");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.role-index.refresh-interval:60000}")
+    public void refresh() {
+        Map<String, Integer> bits = new HashMap<>();
+        GrantedAuthority[] authorities = new GrantedAuthority[MAX_ROLES];
+        for (Role role : roleRepository.findAll()) {
+            Integer bit = role.getBit();
+            if (bit == null || bit < 0 || bit >= MAX_ROLES) {
+                continue;
+            }
+            bits.put(role.getName(), bit);
+            // One shared authority instance per role, never allocated per request
+            authorities[bit] = new SimpleGrantedAuthority(role.getName());
+        }
+        if (bits.equals(snapshot.get().bits())) {
+            return;
+        }
+        // Bits never move, so a newer read only ever adds roles to what learn() may have merged meanwhile
+        snapshot.set(new Snapshot(Map.copyOf(bits), authorities));
+        log.info("Role bit index built with {} roles", bits.size());
+    }
+
+    // A role created after the last refresh: one lookup by its natural id, merged without reloading the table
+    private int learn(String roleName) {
+        Integer bit = roleRepository.findByName(roleName).map(Role::getBit).orElse(null);
+        if (bit == null || bit < 0 || bit >= MAX_ROLES) {
+            return -1;
+        }
+        snapshot.updateAndGet(current -> current.bits().containsKey(roleName) ? current : current.with(roleName, bit));
+        return bit;
+    }
+
+    // ===== Lookups =====
+    public int bitOf(String roleName) {
+        Integer bit = snapshot.get().bits().get(roleName);
+        return bit == null ? -1 : bit;
+    }
+
+    // hasRole("ADMIN") style names, the ROLE_ prefix is added when missing
+    public long maskOfRoles(String... roles) {
+        long mask = 0;
+        for (String role : roles) {
+            int bit = bitOf(role.startsWith(ROLE_PREFIX) ? role : ROLE_PREFIX + role);
+            if (bit >= 0) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    public boolean knows(String roleName) {
+        return bitOf(roleName) >= 0;
+    }
+
+    GrantedAuthority authorityAt(int bit) {
+        GrantedAuthority[] authorities = snapshot.get().authorities();
+        return bit >= 0 && bit < authorities.length ? authorities[bit] : null;
+    }
+
+    // ===== Build =====
+    public RoleAuthorities authoritiesOf(Collection<String> roleNames) {
+        long bits = 0;
+        for (String name : roleNames) {
+            int bit = bitOf(name);
+            if (bit < 0) {
+                bit = learn(name);
+            }
+            if (bit >= 0) {
+                bits |= 1L << bit;
+            } else {
+                log.warn("Role {} is not in the role bit index and is ignored", name);
+            }
+        }
+        return new RoleAuthorities(bits, this);
+    }
+
+    public RoleAuthorities authoritiesOf(long bits) {
+        return new RoleAuthorities(bits, this);
+    }
+}
@@ -0,0 +1,190 @@
+package com.mts.aadati.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Same semantics as an ordered requestMatchers chain (first declared rule wins), resolved by walking a
+// path segment trie once instead of testing every matcher in turn. Patterns are literal paths,
+// optionally ending with "/**".
+@Slf4j
+public final class RouteAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final int NO_RULE = Integer.MAX_VALUE;
+    private static final List<HttpMethod> METHODS = List.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.POST, HttpMethod.PUT,
+            HttpMethod.PATCH, HttpMethod.DELETE, HttpMethod.OPTIONS, HttpMethod.TRACE);
+    // Slot for methods outside the list above, only method independent rules apply to it
+    private static final int OTHER_METHOD = METHODS.size();
+
+    private final Node root;
+    private final List<AuthorizationManager<RequestAuthorizationContext>> decisions;
+    private final AuthorizationManager<RequestAuthorizationContext> fallback;
+
+    private RouteAuthorizationManager(Node root,
+                                      List<AuthorizationManager<RequestAuthorizationContext>> decisions,
+                                      AuthorizationManager<RequestAuthorizationContext> fallback) {
+        this.root = root;
+        this.decisions = decisions;
+        this.fallback = fallback;
+    }
+
+    public static Builder builder(RoleBitIndex roleBitIndex) {
+        return new Builder(roleBitIndex);
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        return resolve(context.getRequest()).authorize(authentication, context);
+    }
+
+    @Override
+    @Deprecated
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        AuthorizationResult result = authorize(authentication, context);
+        return result == null ? null : new AuthorizationDecision(result.isGranted());
+    }
+
+    // ===== One walk down the trie, keeping the lowest (first declared) matching rule =====
+    AuthorizationManager<RequestAuthorizationContext> resolve(HttpServletRequest request) {
+        int slot = methodSlot(request.getMethod());
+        String path = request.getServletPath();
+        if (request.getPathInfo() != null) {
+            path = path + request.getPathInfo();
+        }
+
+        Node node = root;
+        int best = node.prefix[slot];
+        int start = 0;
+        int length = path.length();
+        while (node != null && start < length) {
+            if (path.charAt(start) == '/') {
+                start++;
+                continue;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.children.get(path.substring(start, end));
+            if (node != null) {
+                best = Math.min(best, node.prefix[slot]);
+            }
+            start = end;
+        }
+        if (node != null) {
+            best = Math.min(best, node.exact[slot]);
+        }
+        return best == NO_RULE ? fallback : decisions.get(best);
+    }
+
+    private static int methodSlot(String method) {
+        for (int i = 0; i < METHODS.size(); i++) {
+            if (METHODS.get(i).name().equals(method)) {
+                return i;
+            }
+        }
+        return OTHER_METHOD;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        // Lowest rule index per method slot for patterns ending here exactly / with "/**"
+        private final int[] exact = filled();
+        private final int[] prefix = filled();
+
+        private static int[] filled() {
+            int[] slots = new int[METHODS.size() + 1];
+            Arrays.fill(slots, NO_RULE);
+            return slots;
+        }
+    }
+
+    // ===== Builder, rules are declared in the same order as the requestMatchers chain =====
+    public static final class Builder {
+
+        private final Node root = new Node();
+        private final List<AuthorizationManager<RequestAuthorizationContext>> decisions = new ArrayList<>();
+        private final RoleBitIndex roleBitIndex;
+
+        private Builder(RoleBitIndex roleBitIndex) {
+            this.roleBitIndex = roleBitIndex;
+        }
+
+        public Builder permitAll(String... patterns) {
+            return rule(null, (authentication, context) -> new AuthorizationDecision(true), patterns);
+        }
+
+        public Builder hasRole(String role, String... patterns) {
+            return rule(null, new RoleBitAuthorizationManager(roleBitIndex, role), patterns);
+        }
+
+        public Builder hasAnyRole(String[] roles, String... patterns) {
+            return rule(null, new RoleBitAuthorizationManager(roleBitIndex, roles), patterns);
+        }
+
+        public Builder hasRole(HttpMethod method, String role, String... patterns) {
+            return rule(method, new RoleBitAuthorizationManager(roleBitIndex, role), patterns);
+        }
+
+        public Builder hasAnyRole(HttpMethod method, String[] roles, String... patterns) {
+            return rule(method, new RoleBitAuthorizationManager(roleBitIndex, roles), patterns);
+        }
+
+        public RouteAuthorizationManager anyRequestAuthenticated() {
+            log.info("Route authorization table compiled with {} rules", decisions.size());
+            return new RouteAuthorizationManager(root, List.copyOf(decisions), AuthenticatedAuthorizationManager.authenticated());
+        }
+
+        private Builder rule(HttpMethod method, AuthorizationManager<RequestAuthorizationContext> decision, String... patterns) {
+            for (String pattern : patterns) {
+                int index = decisions.size();
+                decisions.add(decision);
+                insert(pattern, method, index);
+            }
+            return this;
+        }
+
+        private void insert(String pattern, HttpMethod method, int index) {
+            boolean prefix = pattern.endsWith("/**");
+            String literal = prefix ? pattern.substring(0, pattern.length() - 3) : pattern;
+            if (literal.contains("*") || literal.contains("{")) {
+                throw new IllegalArgumentException("Only literal paths and a trailing /** are supported: " + pattern);
+            }
+
+            Node node = root;
+            for (String segment : literal.split("/")) {
+                if (!segment.isEmpty()) {
+                    node = node.children.computeIfAbsent(segment, s -> new Node());
+                }
+            }
+
+            int[] slots = prefix ? node.prefix : node.exact;
+            for (int slot = 0; slot < slots.length; slot++) {
+                boolean applies = method == null || (slot < METHODS.size() && METHODS.get(slot).equals(method));
+                if (applies) {
+                    // First declared rule keeps the slot, like the first matching requestMatchers entry
+                    slots[slot] = Math.min(slots[slot], index);
+                }
+            }
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.mts.aadati.security;
 import com.mts.aadati.security.jwt.JwtAccessDeniedHandler;
 import com.mts.aadati.security.jwt.JwtAuthenticationEntryPoint;
 import com.mts.aadati.security.jwt.JwtAuthenticationFilter;
+import com.mts.aadati.security.ratelimit.RateLimitFilter;
 
+import jakarta.servlet.DispatcherType;
 import lombok.AllArgsConstructor;
 
 import org.springframework.context.annotation.Bean;
@@ -39,6 +41,8 @@ public class SecurityConfiguration {
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     private final JwtAccessDeniedHandler jwtAccessDeniedHandler;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final RoleBitIndex roleBitIndex;
 
     private static final String ADMIN = "ADMIN" ;
     private static final String USER = "USER" ;
@@ -53,75 +57,17 @@ public class SecurityConfiguration {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 // Every request is considered stateless and not session dependent.
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                // Authorize configuration
+                // Authorize configuration, compiled once into a path trie (see routeAuthorizationManager)
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
-                        // Authentication Controller
-                        .requestMatchers("/aadati/v1/auth/**").permitAll()
-                        // User Controller - Admin-only endpoints
-                        .requestMatchers("/aadati/v1/user/all").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/user/search/firstName/**").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/user/search/lastName/**").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/user/search/fullName/**").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/user/recent").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/user/search/createdAt/**").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/user/search/updatedAt/**").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/user/role/**").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/user/withRoles").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/user/count/role/**").hasRole(ADMIN)
-                        // User Controller - endpoints accessible by USER and ADMIN
-                        .requestMatchers("/aadati/v1/user/**").hasAnyRole(USER, ADMIN)
-                        // TaskPriorityLevelController
-                        // Admin-only endpoints (add/update/delete)
-                        .requestMatchers("/aadati/v1/task-priority-level/add").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/task-priority-level/update").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/task-priority-level/remove/**").hasRole(ADMIN)
-                        // Show/Query endpoints accessible to USER + ADMIN
-                        .requestMatchers("/aadati/v1/task-priority-level/all").hasAnyRole(USER,ADMIN)
-                        .requestMatchers("/aadati/v1/task-priority-level/colors").hasAnyRole(USER, ADMIN)
-                        .requestMatchers("/aadati/v1/task-priority-level/asc").hasAnyRole(USER,ADMIN)
-                        .requestMatchers("/aadati/v1/task-priority-level/desc").hasAnyRole(USER,ADMIN)
-                        .requestMatchers("/aadati/v1/task-priority-level/search/**").hasAnyRole(USER,ADMIN)
-                        .requestMatchers("/aadati/v1/task-priority-level/exists/**").hasAnyRole(USER,ADMIN)
-                        // TaskCompletionController
-                        .requestMatchers("/api/v1/task-completions/**").hasAnyRole(USER, ADMIN)
-                        // RoleController
-                        // Admin-only endpoints
-                        .requestMatchers("/aadati/v1/roles/add").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/roles/add-list").hasRole(ADMIN)
-                        .requestMatchers("/aadati/v1/roles/delete/**").hasRole(ADMIN)
-                        // Show/Query endpoints accessible to USER + ADMIN
-                        .requestMatchers("/aadati/v1/roles/search/**").hasAnyRole(USER, ADMIN)
-                        .requestMatchers("/aadati/v1/roles/active").hasAnyRole(USER, ADMIN)
-                        .requestMatchers("/aadati/v1/roles/deleted").hasAnyRole(USER, ADMIN)
-                        .requestMatchers("/aadati/v1/roles/count/active").hasAnyRole(USER, ADMIN)
-                        .requestMatchers("/aadati/v1/roles/exists/**").hasAnyRole(USER, ADMIN)
-                        // PercentageWeekController
-                        .requestMatchers("/percentage-week/**").hasAnyRole(USER, ADMIN)
-                        // PercentageDayController
-                        .requestMatchers("/percentage-day/**").hasAnyRole(USER, ADMIN)
-                        // HabitWeekController
-                        .requestMatchers("/aadati/v1/habit-weeks/**").hasAnyRole(USER, ADMIN)
-                        // HabitTaskController
-                        .requestMatchers("/habit-task/**").hasAnyRole(USER, ADMIN)
-                        // HabitDayWeekController
-                        .requestMatchers("/aadati/v1/day-of-week/**").hasAnyRole(USER, ADMIN)
-                        // HabitController
-                        .requestMatchers("/habit/**").hasAnyRole(USER, ADMIN)
-                        // HabitCompletionController
-                        .requestMatchers("/api/v1/habit-completions/**").hasAnyRole(USER, ADMIN)
-                        // HabitCategoryController
-                        .requestMatchers(HttpMethod.GET, "/aadati/v1/habit-category/**").hasAnyRole(USER, ADMIN)
-                        .requestMatchers(HttpMethod.POST, "/aadati/v1/habit-category/**").hasRole(ADMIN)
-                        // HabitCalendarController
-                        .requestMatchers("/aadati/v1/habit-calendar/**").hasAnyRole(USER, ADMIN)
-
-
-                        .anyRequest().authenticated()
+                        // Async results (login, user export) were authorized on the original dispatch
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .anyRequest().access(routeAuthorizationManager())
                 )
 
                 // Add JWT Filter
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Rate limit before the token is authenticated
+                .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class)
                 // Exception Handel
                 .exceptionHandling(ex -> ex
                         .authenticationEntryPoint(jwtAuthenticationEntryPoint)
@@ -130,6 +76,83 @@ public class SecurityConfiguration {
                 .build();
     }
 
+    // ===== Route rules, first declared rule wins exactly like the requestMatchers chain =====
+    RouteAuthorizationManager routeAuthorizationManager() {
+        String[] userOrAdmin = {USER, ADMIN};
+        return RouteAuthorizationManager.builder(roleBitIndex)
+                .permitAll("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**")
+                // Authentication Controller
+                .permitAll("/aadati/v1/auth/**")
+                // Deletion progress: the job id is the credential, the requester's own tokens are already revoked;
+                // the body is state, phase and row count only
+                .permitAll("/aadati/v1/user/deletion/**")
+                // User Controller - Admin-only endpoints
+                .hasRole(ADMIN,
+                        "/aadati/v1/user/all",
+                        "/aadati/v1/user/export",
+                        "/aadati/v1/user/import",
+                        "/aadati/v1/user/search/firstName/**",
+                        "/aadati/v1/user/search/lastName/**",
+                        "/aadati/v1/user/search/fullName/**",
+                        "/aadati/v1/user/recent",
+                        "/aadati/v1/user/search/createdAt/**",
+                        "/aadati/v1/user/search/updatedAt/**",
+                        "/aadati/v1/user/role/**",
+                        "/aadati/v1/user/withRoles",
+                        "/aadati/v1/user/count/role/**")
+                // User Controller - endpoints accessible by USER and ADMIN
+                .hasAnyRole(userOrAdmin, "/aadati/v1/user/**")
+                // TaskPriorityLevelController
+                // Admin-only endpoints (add/update/delete)
+                .hasRole(ADMIN,
+                        "/aadati/v1/task-priority-level/add",
+                        "/aadati/v1/task-priority-level/update",
+                        "/aadati/v1/task-priority-level/remove/**")
+                // Show/Query endpoints accessible to USER + ADMIN
+                .hasAnyRole(userOrAdmin,
+                        "/aadati/v1/task-priority-level/all",
+                        "/aadati/v1/task-priority-level/colors",
+                        "/aadati/v1/task-priority-level/asc",
+                        "/aadati/v1/task-priority-level/desc",
+                        "/aadati/v1/task-priority-level/search/**",
+                        "/aadati/v1/task-priority-level/exists/**")
+                // TaskCompletionController
+                .hasAnyRole(userOrAdmin, "/api/v1/task-completions/**")
+                // RoleController
+                // Admin-only endpoints
+                .hasRole(ADMIN,
+                        "/aadati/v1/roles/add",
+                        "/aadati/v1/roles/add-list",
+                        "/aadati/v1/roles/delete/**")
+                // Show/Query endpoints accessible to USER + ADMIN
+                .hasAnyRole(userOrAdmin,
+                        "/aadati/v1/roles/search/**",
+                        "/aadati/v1/roles/active",
+                        "/aadati/v1/roles/deleted",
+                        "/aadati/v1/roles/count/active",
+                        "/aadati/v1/roles/exists/**")
+                // PercentageWeekController
+                .hasAnyRole(userOrAdmin, "/percentage-week/**")
+                // PercentageDayController
+                .hasAnyRole(userOrAdmin, "/percentage-day/**")
+                // HabitWeekController
+                .hasAnyRole(userOrAdmin, "/aadati/v1/habit-weeks/**")
+                // HabitTaskController
+                .hasAnyRole(userOrAdmin, "/habit-task/**")
+                // HabitDayWeekController
+                .hasAnyRole(userOrAdmin, "/aadati/v1/day-of-week/**")
+                // HabitController
+                .hasAnyRole(userOrAdmin, "/habit/**")
+                // HabitCompletionController
+                .hasAnyRole(userOrAdmin, "/api/v1/habit-completions/**")
+                // HabitCategoryController
+                .hasAnyRole(HttpMethod.GET, userOrAdmin, "/aadati/v1/habit-category/**")
+                .hasRole(HttpMethod.POST, ADMIN, "/aadati/v1/habit-category/**")
+                // HabitCalendarController
+                .hasAnyRole(userOrAdmin, "/aadati/v1/habit-calendar/**")
+                .anyRequestAuthenticated();
+    }
+
     @Bean
     public AuthenticationManager authenticationManager (
             AuthenticationConfiguration authenticationConfiguration) throws Exception{
@@ -0,0 +1,189 @@
+package com.mts.aadati.security;
+
+import com.mts.aadati.entities.UserSecurityEpoch;
+import com.mts.aadati.repository.UserSecurityEpochRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Component
+public class SecurityEpochRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecurityEpochRegistry.class);
+    // Ids per IN list of a bulk bump
+    private static final int BUMP_CHUNK_SIZE = 1000;
+
+    private final UserSecurityEpochRepository userSecurityEpochRepository;
+    // Creates a user's first row in its own transaction, so a lost insert race does not poison the caller's
+    private final TransactionTemplate newTransaction;
+    // Re-read a window before the last refresh so bumps from nodes with a slightly late clock are not missed
+    private final Duration overlap;
+
+    // Users that were never bumped are at epoch 0 and are not stored
+    private final Map<UUID, Long> epochs = new ConcurrentHashMap<>();
+    private volatile Instant watermark = Instant.EPOCH;
+
+    public SecurityEpochRegistry(UserSecurityEpochRepository userSecurityEpochRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${token.service.epoch.refresh-overlap:30000}") long overlapMillis) {
+        this.userSecurityEpochRepository = userSecurityEpochRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.overlap = Duration.ofMillis(overlapMillis);
+    }
+
+    @PostConstruct
+    void load() {
+        Instant loadedAt = Instant.now();
+        merge(userSecurityEpochRepository.findAll());
+        watermark = loadedAt;
+        logger.info("Security epochs loaded for {} users", epochs.size());
+    }
+
+    public long currentEpoch(UUID userId) {
+        if (userId == null) {
+            return 0L;
+        }
+        return epochs.getOrDefault(userId, 0L);
+    }
+
+    // ===== Revoke every token of the user: one counter bump, persisted so other nodes and restarts see it =====
+    @Transactional
+    public long bump(UUID userId) {
+        if (userId == null) {
+            logger.warn("bump failed: userId is null");
+            return 0L;
+        }
+        if (userSecurityEpochRepository.increment(userId, Instant.now()) == 0) {
+            createRow(userId);
+            userSecurityEpochRepository.increment(userId, Instant.now());
+        }
+        // The increment holds the row lock until commit, this reads the value it wrote
+        long epoch = userSecurityEpochRepository.findEpoch(userId).orElse(currentEpoch(userId) + 1);
+
+        // Only a committed bump may move the local epoch, a rolled back one would leave it ahead of the database
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    epochs.merge(userId, epoch, Math::max);
+                }
+            });
+        } else {
+            epochs.merge(userId, epoch, Math::max);
+        }
+        logger.info("Security epoch bumped for user {} to {}", userId, epoch);
+        return epoch;
+    }
+
+    // A row at epoch 0 is the same as no row; of two concurrent first bumps one insert loses and is ignored
+    private void createRow(UUID userId) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                if (!userSecurityEpochRepository.existsById(userId)) {
+                    userSecurityEpochRepository.saveAndFlush(UserSecurityEpoch.builder()
+                            .userId(userId)
+                            .epoch(0L)
+                            .build());
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Security epoch row for user {} created concurrently", userId);
+        }
+    }
+
+    // ===== Revoke the tokens of many users (role deletion): set-based, one merge after commit =====
+    @Transactional
+    public void bumpAll(Collection<UUID> userIds) {
+        List<UUID> distinct = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<UUID, Long> bumped = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += BUMP_CHUNK_SIZE) {
+            List<UUID> chunk = distinct.subList(from, Math.min(from + BUMP_CHUNK_SIZE, distinct.size()));
+            createRows(chunk);
+            Instant now = Instant.now();
+            if (userSecurityEpochRepository.incrementAll(chunk, now) < chunk.size()) {
+                // Rows still missing (an insert lost to a concurrent one), bumped one by one
+                Set<UUID> missing = new HashSet<>(chunk);
+                userSecurityEpochRepository.findEpochs(chunk).forEach(row -> missing.remove(row.userId()));
+                missing.forEach(userId -> {
+                    createRow(userId);
+                    userSecurityEpochRepository.increment(userId, Instant.now());
+                });
+            }
+            // The updates hold the row locks until commit, this reads the values they wrote
+            userSecurityEpochRepository.findEpochs(chunk).forEach(row -> bumped.put(row.userId(), row.epoch()));
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumped.forEach((userId, epoch) -> epochs.merge(userId, epoch, Math::max));
+                }
+            });
+        } else {
+            bumped.forEach((userId, epoch) -> epochs.merge(userId, epoch, Math::max));
+        }
+        logger.info("Security epochs bumped for {} users", bumped.size());
+    }
+
+    // Same as createRow for a whole chunk, in one INSERT ... SELECT
+    private void createRows(List<UUID> userIds) {
+        try {
+            newTransaction.executeWithoutResult(status -> userSecurityEpochRepository.insertMissing(userIds, Instant.now()));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Security epoch rows created concurrently for some of {} users", userIds.size());
+        }
+    }
+
+    // ===== Check that the token epoch is still current for the user =====
+    public boolean isCurrent(UUID userId, long tokenEpoch) {
+        return tokenEpoch >= currentEpoch(userId);
+    }
+
+    // ===== Incremental refresh of bumps made by other nodes =====
+    @Scheduled(fixedDelayString = "${token.service.epoch.refresh-interval:5000}")
+    public void refresh() {
+        Instant refreshedAt = Instant.now();
+        List<UserSecurityEpoch> changed = userSecurityEpochRepository.findByUpdatedAtAfter(watermark.minus(overlap));
+        merge(changed);
+        watermark = refreshedAt;
+        if (!changed.isEmpty()) {
+            logger.debug("Security epochs refreshed for {} users", changed.size());
+        }
+    }
+
+    // Epochs only move forward, so merging the same row twice is harmless
+    private void merge(List<UserSecurityEpoch> rows) {
+        for (UserSecurityEpoch row : rows) {
+            epochs.merge(row.getUserId(), row.getEpoch(), Math::max);
+        }
+    }
+}
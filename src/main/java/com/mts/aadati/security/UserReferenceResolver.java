@@ -0,0 +1,66 @@
+package com.mts.aadati.security;
+
+import com.mts.aadati.entities.User;
+import com.mts.aadati.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// The user a service call acts on, as an uninitialized reference when it is the authenticated
+// principal of the request: its token was signed for this id with a current security epoch, so the
+// row exists and a SELECT would only repeat what authentication proved. The proxy loads itself the
+// first time a field other than the id is read. Any other id is looked up as before.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserReferenceResolver {
+
+    private final UserRepository userRepository;
+
+    public Optional<User> resolve(UUID userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        if (isPrincipal(userId)) {
+            return Optional.of(userRepository.getReferenceById(userId));
+        }
+        log.debug("User {} is not the request principal, loading it", userId);
+        return userRepository.findById(userId);
+    }
+
+    // As resolve, but empty while the user is being deleted. The marker commits together with the
+    // revocation of the user's tokens, so it also stops a token another node has not yet seen revoked.
+    public Optional<User> resolveForWrite(UUID userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        Optional<User> user;
+        if (isPrincipal(userId)) {
+            user = userRepository.isDeleting(userId) ? Optional.empty() : Optional.of(userRepository.getReferenceById(userId));
+        } else {
+            user = userRepository.findById(userId).filter(found -> !found.isDeleting());
+        }
+        if (user.isEmpty()) {
+            log.warn("User {} not found or being deleted, write refused", userId);
+        }
+        return user;
+    }
+
+    private static boolean isPrincipal(UUID userId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null
+                && authentication.isAuthenticated()
+                && authentication.getPrincipal() instanceof CustomUserDetails principal
+                && userId.equals(principal.getId());
+    }
+}
@@ -1,20 +1,17 @@
 package com.mts.aadati.security;
 
+import com.mts.aadati.entities.Role;
 import com.mts.aadati.entities.User;
 import com.mts.aadati.services.UserService;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.List;
 
 /**
  * © 2025 Mohamed Taha
@@ -27,6 +24,7 @@ public class UsersToUserDetailsService implements UserDetailsService {
 
     private static final Logger logger = LoggerFactory.getLogger(UsersToUserDetailsService.class);
     private final UserService userService ;
+    private final RoleBitIndex roleBitIndex;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -40,17 +38,17 @@ public class UsersToUserDetailsService implements UserDetailsService {
                 });
 
 
-        Set<GrantedAuthority> authorities;
+        RoleAuthorities authorities;
         try {
-            authorities = userService.getRolesByUserId(user.getUserId())
+            authorities = roleBitIndex.authoritiesOf(userService.getRolesByUserId(user.getUserId())
                     .stream()
-                    .map(role -> new SimpleGrantedAuthority(role.getName()))
-                    .collect(Collectors.toSet());
+                    .map(Role::getName)
+                    .toList());
             if (authorities.isEmpty())
                 logger.warn("User {} has no roles assigned", username);
         } catch (Exception e) {
             logger.error("Failed to load roles for user: {}", username, e);
-            authorities = new HashSet<>();
+            authorities = roleBitIndex.authoritiesOf(List.of());
         }
 
 
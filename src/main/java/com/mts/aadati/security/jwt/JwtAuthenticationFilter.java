@@ -1,14 +1,15 @@
 package com.mts.aadati.security.jwt;
 
+import com.mts.aadati.security.CustomUserDetails;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import lombok.AllArgsConstructor;
-
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -29,15 +30,23 @@ import java.util.List;
  */
 
 @Component
-@AllArgsConstructor
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService ;
     private final UserDetailsService userDetailsService ;
-
-    @Qualifier("handlerExceptionResolver")
     private final HandlerExceptionResolver handlerExceptionResolver ;
+    private final boolean statelessEnabled ;
+
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   UserDetailsService userDetailsService,
+                                   @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver,
+                                   @Value("${token.service.stateless.enabled:true}") boolean statelessEnabled) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.statelessEnabled = statelessEnabled;
+    }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -61,14 +70,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
             // Get Token from Header
             final String jwtToken = authHeader.substring(7) ;
-            // Get User from Token
-            final String username = jwtService.extractUsername(jwtToken);
+            // Verify the Token once and get User from its claims
+            final Claims claims = jwtService.extractAllVerifiedClaims(jwtToken);
+            final String username = claims.getSubject();
             // Check that the username is not null or SecurityContextHolder is null
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null){
-                // Load that the userDetails by username from DB
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                // Revoked by a security epoch bump, leave the request unauthenticated
+                if (!jwtService.isEpochCurrent(claims)) {
+                    log.debug("Rejected revoked token for user '{}'", username);
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                // Build the userDetails from the claims, or load it from DB for tokens without stateless claims
+                UserDetails userDetails = resolveUserDetails(claims, username);
                 // Check that the Token is valid by Token and username
-                if (jwtService.isTokenValid(jwtToken,userDetails)){
+                if (jwtService.isTokenValid(claims,userDetails)){
                     // Generate Authentication Token
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(
@@ -89,11 +105,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
 
+    // ===== Resolve the principal from the Token, falling back to DB =====
+    private UserDetails resolveUserDetails(Claims claims, String username) {
+        if (statelessEnabled) {
+            CustomUserDetails userDetails = jwtService.extractUserDetails(claims);
+            if (userDetails != null) {
+                return userDetails;
+            }
+        }
+        log.debug("Loading user '{}' from DB", username);
+        return this.userDetailsService.loadUserByUsername(username);
+    }
+
     // ===== Check that the path matches the public path =====
      private boolean isPublicPath(String path){
         List<String> publicPath =  Arrays.asList(
                 "/aadati/v1/auth/login",
                 "/aadati/v1/auth/register",
+                "/aadati/v1/auth/jwks",
+                "/aadati/v1/auth/refresh",
                 "/swagger-ui"
         );
         return publicPath.stream().anyMatch(path::startsWith);
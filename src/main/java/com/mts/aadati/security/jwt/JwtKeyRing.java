@@ -0,0 +1,208 @@
+package com.mts.aadati.security.jwt;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Component
+@Slf4j
+public class JwtKeyRing extends LocatorAdapter<Key> {
+
+    private static final String HS256 = "HS256";
+    private static final String ES256 = "ES256";
+    private static final String ED_DSA = "EdDSA";
+
+    // HS256 (shared secret), ES256 or EdDSA (Ed25519, public keys published as JWKS)
+    @Value("${token.service.signing.algorithm:HS256}")
+    private String algorithm;
+    @Value("${token.service.secret.key}")
+    private String secretKey;
+    @Value("${token.service.secret.kid:primary}")
+    private String activeKid;
+    // Comma separated list of "kid:secret" entries that are only used for verification
+    @Value("${token.service.previous.keys:}")
+    private String previousKeys;
+    // Base64 DER keys (PKCS#8 private, X.509 public) for the asymmetric algorithms
+    @Value("${token.service.asymmetric.private-key:}")
+    private String asymmetricPrivateKey;
+    @Value("${token.service.asymmetric.public-key:}")
+    private String asymmetricPublicKey;
+    @Value("${token.service.jwt.expiration}")
+    private int jwtExpiration;
+    @Value("${token.service.refresh.expiration}")
+    private int refreshExpiration;
+
+    private final Map<String, Key> keys = new ConcurrentHashMap<>();
+    private final Map<String, Instant> retireAt = new ConcurrentHashMap<>();
+    private Key signingKey;
+
+    @PostConstruct
+    void init() {
+        if (isAsymmetric()) {
+            KeyPair keyPair = loadKeyPair();
+            signingKey = keyPair.getPrivate();
+            keys.put(activeKid, keyPair.getPublic());
+        } else {
+            SecretKey key = buildSecretKey(secretKey);
+            signingKey = key;
+            keys.put(activeKid, key);
+        }
+
+        // A previous key can only have signed tokens that are at most one token lifetime old
+        Instant retirement = Instant.now().plusMillis(Math.max(jwtExpiration, refreshExpiration));
+        for (String entry : previousKeys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                log.warn("Ignoring previous signing key without kid");
+                continue;
+            }
+            String kid = entry.substring(0, separator).trim();
+            if (kid.equals(activeKid)) {
+                log.warn("Ignoring previous signing key {}: kid is already active", kid);
+                continue;
+            }
+            String material = entry.substring(separator + 1).trim();
+            keys.put(kid, isAsymmetric() ? decodePublicKey(material) : buildSecretKey(material));
+            retireAt.put(kid, retirement);
+        }
+        log.info("JWT key ring initialized with {} active key {} and {} previous keys",
+                algorithm, activeKid, retireAt.size());
+    }
+
+    // ===== Signing =====
+    public String getActiveKid() {
+        return activeKid;
+    }
+
+    public JwtBuilder sign(JwtBuilder builder) {
+        JwtBuilder withKid = builder.header().keyId(activeKid).and();
+        return switch (algorithm) {
+            case ES256 -> withKid.signWith((PrivateKey) signingKey, Jwts.SIG.ES256);
+            case ED_DSA -> withKid.signWith((PrivateKey) signingKey, Jwts.SIG.EdDSA);
+            default -> withKid.signWith((SecretKey) signingKey, Jwts.SIG.HS256);
+        };
+    }
+
+    // ===== Verification, O(1) lookup by the kid header =====
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        // Tokens issued before the key ring existed carry no kid
+        Key key = keys.get(kid == null ? activeKid : kid);
+        if (key == null) {
+            log.warn("No signing key found for kid: {}", kid);
+            throw new SignatureException("Unknown signing key: " + kid);
+        }
+        return key;
+    }
+
+    // ===== Public keys for local verification on other nodes, secrets are never published =====
+    public List<Map<String, Object>> publicJwks() {
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        if (!isAsymmetric()) {
+            return jwks;
+        }
+        keys.forEach((kid, key) -> jwks.add(new LinkedHashMap<>(Jwks.builder()
+                .key((PublicKey) key)
+                .id(kid)
+                .algorithm(algorithm)
+                .publicKeyUse("sig")
+                .build())));
+        return jwks;
+    }
+
+    // ===== Retire previous keys once every token they signed has expired =====
+    @Scheduled(fixedDelayString = "${token.service.keys.retire-interval:60000}")
+    public void retireExpiredKeys() {
+        Instant now = Instant.now();
+        retireAt.entrySet().removeIf(entry -> {
+            if (entry.getValue().isAfter(now)) {
+                return false;
+            }
+            keys.remove(entry.getKey());
+            log.info("Retired JWT signing key: {}", entry.getKey());
+            return true;
+        });
+    }
+
+    private boolean isAsymmetric() {
+        return !HS256.equals(algorithm);
+    }
+
+    private SecretKey buildSecretKey(String secret) {
+        try {
+            return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        } catch (IllegalArgumentException e) {
+            log.warn("Secret key is not Base64 encoded, using raw bytes");
+            return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Every node must sign with the same key pair, a key generated per node would publish one "primary"
+    // kid per node and tokens signed on one node would be rejected by the others
+    private KeyPair loadKeyPair() {
+        if (asymmetricPrivateKey.isBlank() || asymmetricPublicKey.isBlank()) {
+            throw new IllegalStateException("token.service.asymmetric.private-key and public-key are required for "
+                    + algorithm + " signing");
+        }
+        try {
+            PrivateKey privateKey = keyFactory().generatePrivate(
+                    new PKCS8EncodedKeySpec(Base64.getDecoder().decode(asymmetricPrivateKey)));
+            return new KeyPair(decodePublicKey(asymmetricPublicKey), privateKey);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid " + algorithm + " private key", e);
+        }
+    }
+
+    private PublicKey decodePublicKey(String material) {
+        try {
+            return keyFactory().generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(material)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid " + algorithm + " public key", e);
+        }
+    }
+
+    private KeyFactory keyFactory() throws GeneralSecurityException {
+        return switch (algorithm) {
+            case ES256 -> KeyFactory.getInstance("EC");
+            case ED_DSA -> KeyFactory.getInstance("Ed25519");
+            default -> throw new IllegalStateException("Unsupported signing algorithm: " + algorithm);
+        };
+    }
+}
@@ -1,22 +1,27 @@
 package com.mts.aadati.security.jwt;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
 
+import com.mts.aadati.security.CustomUserDetails;
+import com.mts.aadati.security.RoleAuthorities;
+import com.mts.aadati.security.RoleBitIndex;
+import com.mts.aadati.security.SecurityEpochRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
@@ -26,22 +31,52 @@ import java.util.function.Function;
 
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class JwtService {
 
-    @Value("${token.service.secret.key}")
-    private String secretKey;
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_EPOCH = "epoch";
+    // Role bitset of RoleBitIndex, replaces the role name list on tokens issued by this version
+    public static final String CLAIM_ROLE_BITS = "rb";
+
+    private final SecurityEpochRegistry securityEpochRegistry;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final JwtKeyRing jwtKeyRing;
+    private final RoleBitIndex roleBitIndex;
+
     @Value("${token.service.jwt.expiration}")
     private int jwtExpiration;
     @Value("${token.service.refresh.expiration}")
     private int refreshExpiration;
 
+    // Parser is immutable, build it once
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        jwtParser = Jwts.parser()
+                .keyLocator(jwtKeyRing)
+                .build();
+    }
+
 
     // ===== Generate Access Token =====
     public String generateAccessToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("role", userDetails.getAuthorities()
-                .stream().map(GrantedAuthority::getAuthority)
-                .toList());
+        if (userDetails.getAuthorities() instanceof RoleAuthorities roleAuthorities) {
+            claims.put(CLAIM_ROLE_BITS, roleAuthorities.bits());
+        } else {
+            claims.put(CLAIM_ROLE, userDetails.getAuthorities()
+                    .stream().map(GrantedAuthority::getAuthority)
+                    .toList());
+        }
+        if (userDetails instanceof CustomUserDetails customUserDetails && customUserDetails.getId() != null) {
+            claims.put(CLAIM_USER_ID, customUserDetails.getId().toString());
+            claims.put(CLAIM_EMAIL, customUserDetails.getEmail());
+            claims.put(CLAIM_EPOCH, securityEpochRegistry.currentEpoch(customUserDetails.getId()));
+        }
 
         String token = generateToken(claims, userDetails.getUsername(), jwtExpiration);
         log.info("Generated Access Token for user: {} with expiration: {} ms", userDetails.getUsername(), jwtExpiration);
@@ -51,12 +86,11 @@ public class JwtService {
 
     // ===== Helper Method for Generate Token =====
     public String generateToken(Map<String, Object> claims, String username, int expiration) {
-        String token = Jwts.builder()
-                .claims(claims)
-                .subject(username)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), Jwts.SIG.HS256)
+        String token = jwtKeyRing.sign(Jwts.builder()
+                        .claims(claims)
+                        .subject(username)
+                        .issuedAt(new Date(System.currentTimeMillis()))
+                        .expiration(new Date(System.currentTimeMillis() + expiration)))
                 .compact();
 
         log.debug("Generated token for user: {} - Expiration: {}", username, new Date(System.currentTimeMillis() + expiration));
@@ -77,8 +111,15 @@ public class JwtService {
     }
 
     public List<String> extractRoles(String token) {
-        List<String> roles = extractClaims(token,
-                claims -> (List<String>) claims.getOrDefault("role", List.of()));
+        List<String> roles = extractClaims(token, claims -> {
+            Number bits = claims.get(CLAIM_ROLE_BITS, Number.class);
+            if (bits != null) {
+                return roleBitIndex.authoritiesOf(bits.longValue()).stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .toList();
+            }
+            return (List<String>) claims.getOrDefault(CLAIM_ROLE, List.of());
+        });
         log.debug("Extracted roles: {} from token", roles);
         return roles;
     }
@@ -100,18 +141,88 @@ public class JwtService {
 
 
 
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        boolean valid = userDetails.getUsername().equals(claims.getSubject())
+                && claims.getExpiration() != null
+                && claims.getExpiration().after(new Date());
+        log.debug("Checked token claims validity for user: {} - Valid: {}", userDetails.getUsername(), valid);
+        return valid;
+    }
+
+    // ===== Stateless Principal =====
+    public Claims extractAllVerifiedClaims(String token) {
+        return extractAllClaims(token);
+    }
+
+    // A token carrying an epoch older than the user's current one was revoked (password, email or role
+    // change, deletion); tokens issued before the epoch claim existed are left to the DB path
+    public boolean isEpochCurrent(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        Number epoch = claims.get(CLAIM_EPOCH, Number.class);
+        if (userId == null || epoch == null) {
+            return true;
+        }
+        boolean current = securityEpochRegistry.isCurrent(UUID.fromString(userId), epoch.longValue());
+        if (!current) {
+            log.debug("Token epoch {} is revoked for user: {}", epoch, claims.getSubject());
+        }
+        return current;
+    }
+
+    // Builds the principal from signed claims only, returns null when the token predates
+    // the stateless claims or the user's security epoch has moved on since it was issued
+    public CustomUserDetails extractUserDetails(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        Number epoch = claims.get(CLAIM_EPOCH, Number.class);
+        if (userId == null || epoch == null || claims.getSubject() == null) {
+            log.debug("Token for user: {} does not carry stateless claims", claims.getSubject());
+            return null;
+        }
+
+        UUID id = UUID.fromString(userId);
+        if (!securityEpochRegistry.isCurrent(id, epoch.longValue())) {
+            log.debug("Token epoch {} is stale for user: {}", epoch, claims.getSubject());
+            return null;
+        }
+
+        return new CustomUserDetails(
+                id,
+                claims.getSubject(),
+                null,
+                claims.get(CLAIM_EMAIL, String.class),
+                authoritiesOf(claims)
+        );
+    }
+
+    // Decoding the bitset allocates one small view, the authorities themselves are shared;
+    // tokens issued before the bitset claim still carry role names
+    private Collection<? extends GrantedAuthority> authoritiesOf(Claims claims) {
+        Number bits = claims.get(CLAIM_ROLE_BITS, Number.class);
+        if (bits != null) {
+            return roleBitIndex.authoritiesOf(bits.longValue());
+        }
+        List<?> roles = claims.get(CLAIM_ROLE, List.class);
+        return roles == null ? List.of() : roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(role)))
+                .toList();
+    }
+
     private <T> T extractClaims(String token, Function<Claims, T> claimsTFunction) {
         final Claims claims = extractAllClaims(token);
         return claimsTFunction.apply(claims);
     }
 
     private Claims extractAllClaims(String token) {
+        Claims cached = verifiedTokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            return Jwts.parser()
-                    .verifyWith(getSignInKey())
-                    .build()
+            Claims claims = jwtParser
                     .parseSignedClaims(token)
                     .getPayload();
+            verifiedTokenCache.put(token, claims);
+            return claims;
         } catch (ExpiredJwtException e) {
             log.warn("Token expired at: {}", e.getClaims().getExpiration());
             return e.getClaims();
@@ -130,13 +241,4 @@ public class JwtService {
         }
     }
 
-    private SecretKey getSignInKey() {
-        try {
-            return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
-        } catch (IllegalArgumentException e) {
-            log.warn("Secret key is not Base64 encoded, using raw bytes");
-            return Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
-        }
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.mts.aadati.security.jwt;
+
+import com.mts.aadati.utils.BoundedLruCache;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Component
+@Slf4j
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final BoundedLruCache<String, Entry> entries;
+    private final int maxSize;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public VerifiedTokenCache(MeterRegistry meterRegistry,
+                              @Value("${token.service.cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("jwt.token.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("jwt.token.cache").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("jwt.token.cache.evictions").register(meterRegistry);
+        this.entries = new BoundedLruCache<>(Math.max(maxSize, 1), evictions::increment);
+        meterRegistry.gauge("jwt.token.cache.size", entries, BoundedLruCache::size);
+    }
+
+    // ===== Get verified claims, never returns an entry past its token expiration =====
+    public Claims get(String token) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.claims();
+    }
+
+    public void put(String token, Claims claims) {
+        if (maxSize <= 0 || claims.getExpiration() == null) {
+            return;
+        }
+        long expiresAt = claims.getExpiration().getTime();
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        // Over the bound the least recently used token goes, expired ones are left to the sweep
+        entries.put(digest(token), new Entry(claims, expiresAt));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // ===== Scheduled sweep so idle tokens do not outlive their expiration =====
+    @Scheduled(fixedDelayString = "${token.service.cache.sweep-interval:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        int removed = entries.removeIf(entry -> entry.expiresAt() <= now);
+        if (removed > 0) {
+            evictions.increment(removed);
+            log.debug("Evicted {} expired tokens from the verified token cache", removed);
+        }
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private record Entry(Claims claims, long expiresAt) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.mts.aadati.security.password;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Converts a text list of SHA-1 hashes ("HEX" or "HEX:count" per line, as in the ordered-by-hash
+// HIBP download) into the fixed width file read by BreachedPasswordIndex. Streams in constant memory,
+// so the input has to be sorted by hash already (e.g. `sort -o sorted.txt hashes.txt`).
+//
+// Usage: java -cp aadati.jar com.mts.aadati.security.password.BreachedPasswordFileBuilder <input.txt> <output.bin>
+public final class BreachedPasswordFileBuilder {
+
+    private static final int PREFIX_HEX_CHARS = BreachedPasswordIndex.ENTRY_BYTES * 2;
+
+    private BreachedPasswordFileBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BreachedPasswordFileBuilder <input.txt> <output.bin>");
+            System.exit(2);
+        }
+        long written = build(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Wrote " + written + " hash prefixes to " + args[1]);
+    }
+
+    static long build(Path input, Path output) throws IOException {
+        long written = 0;
+        long previous = 0;
+        long lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output), 1 << 16))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.length() < PREFIX_HEX_CHARS) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " is not a SHA-1 hash: " + line);
+                }
+                long prefix = Long.parseUnsignedLong(line.substring(0, PREFIX_HEX_CHARS), 16);
+                if (written > 0) {
+                    int comparison = Long.compareUnsigned(prefix, previous);
+                    if (comparison < 0) {
+                        throw new IllegalArgumentException("Input is not sorted by hash at line " + lineNumber);
+                    }
+                    // Different hashes can share a prefix, keep one entry
+                    if (comparison == 0) {
+                        continue;
+                    }
+                }
+                out.writeLong(prefix);
+                previous = prefix;
+                written++;
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,121 @@
+package com.mts.aadati.security.password;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Sorted file of 8 byte big-endian SHA-1 prefixes (see BreachedPasswordFileBuilder), mapped read-only
+// and binary searched in place: the heap cost is the same for 1 KB or 10 GB of hashes
+@Component
+@Slf4j
+public class BreachedPasswordIndex {
+
+    static final int ENTRY_BYTES = Long.BYTES;
+    // 2^27 entries = 1 GiB per mapping, below the 2 GiB limit of a single MappedByteBuffer
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private static final ThreadLocal<MessageDigest> SHA_1 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    });
+
+    @Value("${password.breached.file:}")
+    private String file;
+
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private long entries;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (file == null || file.isBlank()) {
+            log.info("No breached password file configured, breached password check is disabled");
+            return;
+        }
+        Path path = Path.of(file);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0) {
+                throw new IllegalStateException("Breached password file is not a multiple of " + ENTRY_BYTES + " bytes: " + path);
+            }
+            long count = size / ENTRY_BYTES;
+            int segmentCount = (int) ((count + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] mapped = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long position = ((long) i << SEGMENT_SHIFT) * ENTRY_BYTES;
+                long length = Math.min(size - position, (SEGMENT_MASK + 1) * ENTRY_BYTES);
+                // The mapping stays valid after the channel is closed
+                mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                mapped[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            segments = mapped;
+            entries = count;
+        }
+        log.info("Breached password index mapped with {} hashes from {}", entries, path);
+    }
+
+    public boolean isEnabled() {
+        return entries > 0;
+    }
+
+    public long size() {
+        return entries;
+    }
+
+    public boolean isBreached(String password) {
+        if (entries == 0 || password == null) {
+            return false;
+        }
+        return contains(prefix(SHA_1.get().digest(password.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    // ===== Binary search over unsigned prefixes, about 30 probes for a billion hashes =====
+    boolean contains(long prefix) {
+        long low = 0;
+        long high = entries - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int comparison = Long.compareUnsigned(entryAt(mid), prefix);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long prefix(byte[] sha1) {
+        long prefix = 0;
+        for (int i = 0; i < ENTRY_BYTES; i++) {
+            prefix = (prefix << 8) | (sha1[i] & 0xFF);
+        }
+        return prefix;
+    }
+
+    // Absolute reads never touch the buffer position, so concurrent lookups are safe
+    private long entryAt(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) (index & SEGMENT_MASK) * ENTRY_BYTES);
+    }
+}
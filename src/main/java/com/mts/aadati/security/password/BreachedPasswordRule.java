@@ -0,0 +1,32 @@
+package com.mts.aadati.security.password;
+
+import org.passay.PasswordData;
+import org.passay.Rule;
+import org.passay.RuleResult;
+
+import java.util.Map;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+public class BreachedPasswordRule implements Rule {
+
+    public static final String ERROR_CODE = "BREACHED_PASSWORD";
+
+    private final BreachedPasswordIndex breachedPasswordIndex;
+
+    public BreachedPasswordRule(BreachedPasswordIndex breachedPasswordIndex) {
+        this.breachedPasswordIndex = breachedPasswordIndex;
+    }
+
+    @Override
+    public RuleResult validate(PasswordData passwordData) {
+        RuleResult result = new RuleResult(true);
+        if (breachedPasswordIndex.isBreached(passwordData.getPassword())) {
+            result.addError(ERROR_CODE, Map.of());
+        }
+        return result;
+    }
+}
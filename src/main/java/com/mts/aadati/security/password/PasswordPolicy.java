@@ -0,0 +1,45 @@
+package com.mts.aadati.security.password;
+
+import lombok.extern.slf4j.Slf4j;
+import org.passay.LengthRule;
+import org.passay.PasswordData;
+import org.passay.PasswordValidator;
+import org.passay.RuleResult;
+import org.passay.RuleResultDetail;
+import org.springframework.stereotype.Component;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Component
+@Slf4j
+public class PasswordPolicy {
+
+    private final PasswordValidator validator;
+
+    public PasswordPolicy(BreachedPasswordIndex breachedPasswordIndex) {
+        // Same bounds as UserRequest, the cheap rule runs before the breached lookup
+        this.validator = new PasswordValidator(
+                new LengthRule(8, 200),
+                new BreachedPasswordRule(breachedPasswordIndex));
+    }
+
+    // ===== Reject weak or breached passwords before they are hashed =====
+    public void check(String rawPassword) {
+        RuleResult result = validator.validate(new PasswordData(rawPassword == null ? "" : rawPassword));
+        if (result.isValid()) {
+            return;
+        }
+        boolean breached = result.getDetails().stream()
+                .map(RuleResultDetail::getErrorCode)
+                .anyMatch(BreachedPasswordRule.ERROR_CODE::equals);
+        if (breached) {
+            log.warn("Password rejected: found in the breached password list");
+            throw new IllegalArgumentException("Password has appeared in a data breach, please choose another one");
+        }
+        log.warn("Password rejected: {}", result.getDetails());
+        throw new IllegalArgumentException("Password must be between 8 and 200 characters");
+    }
+}
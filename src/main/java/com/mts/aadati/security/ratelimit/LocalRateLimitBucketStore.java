@@ -0,0 +1,69 @@
+package com.mts.aadati.security.ratelimit;
+
+import com.mts.aadati.utils.BoundedLruCache;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.github.bucket4j.local.SynchronizationStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Slf4j
+public class LocalRateLimitBucketStore implements RateLimitBucketStore {
+
+    // Over the bound the least recently used key goes; a client rotating keys only ever costs one
+    // constant-time eviction per new key, the idle sweep runs from the scheduler alone
+    private final BoundedLruCache<String, Entry> buckets;
+    private final long idleTimeoutMillis;
+
+    public LocalRateLimitBucketStore(int maxSize, long idleTimeoutMillis) {
+        this.buckets = new BoundedLruCache<>(maxSize, () -> { });
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public Bucket resolve(String key, BucketConfiguration configuration) {
+        Entry entry = buckets.computeIfAbsent(key, k -> new Entry(newBucket(configuration)));
+        entry.lastAccess = System.currentTimeMillis();
+        return entry.bucket;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    // ===== Evict idle buckets, an idle bucket has refilled anyway so dropping it loses nothing =====
+    @Scheduled(fixedDelayString = "${rate-limit.local.sweep-interval:60000}")
+    public void evictIdle() {
+        long threshold = System.currentTimeMillis() - idleTimeoutMillis;
+        int removed = buckets.removeIf(entry -> entry.lastAccess < threshold);
+        if (removed > 0) {
+            log.debug("Evicted {} idle rate limit buckets", removed);
+        }
+    }
+
+    private static Bucket newBucket(BucketConfiguration configuration) {
+        LocalBucketBuilder builder = Bucket.builder()
+                .withSynchronizationStrategy(SynchronizationStrategy.LOCK_FREE);
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+
+    private static final class Entry {
+        private final Bucket bucket;
+        private volatile long lastAccess;
+
+        private Entry(Bucket bucket) {
+            this.bucket = bucket;
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.mts.aadati.security.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Cluster wide mode, every node consumes from the same remote bucket (e.g. the bucket4j-redis ProxyManager)
+public class ProxyManagerRateLimitBucketStore implements RateLimitBucketStore {
+
+    private final ProxyManager<String> proxyManager;
+
+    public ProxyManagerRateLimitBucketStore(ProxyManager<String> proxyManager) {
+        this.proxyManager = proxyManager;
+    }
+
+    @Override
+    public Bucket resolve(String key, BucketConfiguration configuration) {
+        return proxyManager.builder().build(key, configuration);
+    }
+}
@@ -0,0 +1,15 @@
+package com.mts.aadati.security.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Where buckets live: in this JVM, or in a shared backend through a bucket4j ProxyManager
+public interface RateLimitBucketStore {
+
+    Bucket resolve(String key, BucketConfiguration configuration);
+}
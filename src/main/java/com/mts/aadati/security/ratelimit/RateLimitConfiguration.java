@@ -0,0 +1,47 @@
+package com.mts.aadati.security.ratelimit;
+
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Configuration
+@Slf4j
+public class RateLimitConfiguration {
+
+    private static final String DISTRIBUTED = "distributed";
+
+    // "local" keeps buckets in this JVM, "distributed" uses a ProxyManager<String> bean when one is defined
+    @Bean
+    public RateLimitBucketStore rateLimitBucketStore(
+            ObjectProvider<ProxyManager<String>> proxyManager,
+            @Value("${rate-limit.store:local}") String store,
+            @Value("${rate-limit.local.max-size:100000}") int maxSize,
+            @Value("${rate-limit.local.idle-timeout:600000}") long idleTimeout) {
+        if (DISTRIBUTED.equalsIgnoreCase(store)) {
+            ProxyManager<String> manager = proxyManager.getIfAvailable();
+            if (manager != null) {
+                log.info("Rate limiting uses the distributed bucket store");
+                return new ProxyManagerRateLimitBucketStore(manager);
+            }
+            log.warn("Distributed rate limiting requested but no ProxyManager is defined, using the local store");
+        }
+        return new LocalRateLimitBucketStore(maxSize, idleTimeout);
+    }
+
+    // The filter runs inside the security chain only, do not register it a second time with the servlet container
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+}
@@ -0,0 +1,151 @@
+package com.mts.aadati.security.ratelimit;
+
+import com.mts.aadati.security.jwt.JwtService;
+import com.mts.aadati.utils.ClientIpResolver;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String AUTH_PATH = "/aadati/v1/auth/";
+
+    private final RateLimitBucketStore bucketStore;
+    private final JwtService jwtService;
+    private final boolean enabled;
+    private final ClientIpResolver clientIpResolver;
+
+    private final BucketConfiguration authLimit;
+    private final BucketConfiguration readLimit;
+    private final BucketConfiguration writeLimit;
+
+    private final Counter authRejected;
+    private final Counter readRejected;
+    private final Counter writeRejected;
+
+    public RateLimitFilter(RateLimitBucketStore bucketStore,
+                           JwtService jwtService,
+                           ClientIpResolver clientIpResolver,
+                           MeterRegistry meterRegistry,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.auth.per-minute:20}") long authPerMinute,
+                           @Value("${rate-limit.read.per-minute:300}") long readPerMinute,
+                           @Value("${rate-limit.write.per-minute:60}") long writePerMinute) {
+        this.bucketStore = bucketStore;
+        this.jwtService = jwtService;
+        this.enabled = enabled;
+        this.clientIpResolver = clientIpResolver;
+
+        this.authLimit = perMinute(authPerMinute);
+        this.readLimit = perMinute(readPerMinute);
+        this.writeLimit = perMinute(writePerMinute);
+
+        this.authRejected = Counter.builder("rate.limit.rejected").tag("tier", "auth").register(meterRegistry);
+        this.readRejected = Counter.builder("rate.limit.rejected").tag("tier", "read").register(meterRegistry);
+        this.writeRejected = Counter.builder("rate.limit.rejected").tag("tier", "write").register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || request.getServletPath().startsWith("/swagger-ui") || request.getServletPath().startsWith("/v3/api-docs");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        String key;
+        BucketConfiguration limit;
+        Counter rejected;
+
+        // Auth endpoints are anonymous, key them by IP; everything else by the user id in the token
+        if (request.getServletPath().startsWith(AUTH_PATH)) {
+            key = "auth:" + clientIpResolver.resolve(request);
+            limit = authLimit;
+            rejected = authRejected;
+        } else if (isWrite(request)) {
+            key = "write:" + principalKey(request);
+            limit = writeLimit;
+            rejected = writeRejected;
+        } else {
+            key = "read:" + principalKey(request);
+            limit = readLimit;
+            rejected = readRejected;
+        }
+
+        ConsumptionProbe probe = bucketStore.resolve(key, limit).tryConsumeAndReturnRemaining(1);
+        if (probe.isConsumed()) {
+            response.setHeader("X-RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()));
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        rejected.increment();
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()));
+        log.warn("Rate limit exceeded for key: {} on {} {}", key, request.getMethod(), request.getRequestURI());
+
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"state\":false,\"message\":\"Too many requests, retry after "
+                + retryAfter + " seconds\",\"data\":null}");
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    // The verified claims are cached, so JwtAuthenticationFilter does not pay for this parse again
+    private String principalKey(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                Claims claims = jwtService.extractAllVerifiedClaims(authHeader.substring(7));
+                String userId = claims.get(JwtService.CLAIM_USER_ID, String.class);
+                if (userId != null) {
+                    return userId;
+                }
+                if (claims.getSubject() != null) {
+                    return claims.getSubject();
+                }
+            } catch (JwtException | IllegalArgumentException e) {
+                log.debug("Rate limit falls back to client IP: {}", e.getMessage());
+            }
+        }
+        return clientIpResolver.resolve(request);
+    }
+
+    private static BucketConfiguration perMinute(long tokens) {
+        return BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(tokens, Refill.greedy(tokens, Duration.ofMinutes(1))))
+                .build();
+    }
+}
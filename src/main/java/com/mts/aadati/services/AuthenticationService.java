@@ -1,35 +1,64 @@
 package com.mts.aadati.services;
 
 
+import com.mts.aadati.entities.Role;
 import com.mts.aadati.entities.User;
 import com.mts.aadati.security.CustomUserDetails;
+import com.mts.aadati.security.PasswordVerificationExecutor;
+import com.mts.aadati.security.RoleAuthorities;
+import com.mts.aadati.security.RoleBitIndex;
 import com.mts.aadati.utils.AuthResponse;
 import com.mts.aadati.dto.request.UserRequest;
 import com.mts.aadati.security.jwt.JwtService;
-import lombok.AllArgsConstructor;
+import com.mts.aadati.enums.SessionEventType;
+import com.mts.aadati.services.RefreshTokenService.Rotation;
+import com.mts.aadati.services.SessionMetadataPipeline.Origin;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.authentication.AuthenticationServiceException;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 /**
  * © 2025 Mohamed Taha
  * This file is part of the MTS Aadati Application.
  */
 @Component
-@AllArgsConstructor
 @Slf4j
 public class AuthenticationService {
 
     private final UserService userService;
     private final JwtService jwtService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordVerificationExecutor passwordVerificationExecutor;
+    private final RefreshTokenService refreshTokenService;
+    private final SessionMetadataPipeline sessionMetadataPipeline;
+    private final RoleBitIndex roleBitIndex;
+    private final DeletionService deletionService;
+    // Runs what follows a password check, token signing and database writes, so the BCrypt pool only hashes
+    private final Executor applicationTaskExecutor;
+
+    public AuthenticationService(UserService userService,
+                                 JwtService jwtService,
+                                 PasswordVerificationExecutor passwordVerificationExecutor,
+                                 RefreshTokenService refreshTokenService,
+                                 SessionMetadataPipeline sessionMetadataPipeline,
+                                 RoleBitIndex roleBitIndex,
+                                 DeletionService deletionService,
+                                 @Qualifier("applicationTaskExecutor") Executor applicationTaskExecutor) {
+        this.userService = userService;
+        this.jwtService = jwtService;
+        this.passwordVerificationExecutor = passwordVerificationExecutor;
+        this.refreshTokenService = refreshTokenService;
+        this.sessionMetadataPipeline = sessionMetadataPipeline;
+        this.roleBitIndex = roleBitIndex;
+        this.deletionService = deletionService;
+        this.applicationTaskExecutor = applicationTaskExecutor;
+    }
 
-    public AuthResponse register(UserRequest request) throws RuntimeException {
+    public AuthResponse register(UserRequest request, Origin origin) throws RuntimeException {
         log.debug("register called for email: {}", request.getEmail());
 
         try {
@@ -42,10 +71,10 @@ public class AuthenticationService {
 
             User user = savedUser.get();
 
-            List<GrantedAuthority> authorities = user.getRoles().stream()
-                    .map(role -> new SimpleGrantedAuthority(role.getName()))
-                    .map(GrantedAuthority.class::cast)
-                    .toList();
+            // A new user only holds the default role, kept as an uninitialized reference: do not load it for its name
+            RoleAuthorities authorities = roleBitIndex.authoritiesOf(user.getRoles().isEmpty()
+                    ? List.of()
+                    : List.of(RoleService.DEFAULT_ROLE));
 
             CustomUserDetails userDetails = new CustomUserDetails(
                     user.getUserId(),
@@ -58,10 +87,11 @@ public class AuthenticationService {
             String accessToken = jwtService.generateAccessToken(userDetails);
 
             log.info("User registered successfully: {}", user.getUsername());
+            sessionMetadataPipeline.publish(user.getUserId(), SessionEventType.REGISTER, origin);
 
             return AuthResponse.builder()
                     .accessToken(accessToken)
-                    .refreshToken(null)
+                    .refreshToken(refreshTokenService.issue(user))
                     .expiresIn(System.currentTimeMillis() + 3600000)
                     .build();
 
@@ -74,66 +104,82 @@ public class AuthenticationService {
         }
     }
 
-    public AuthResponse login(String username, String password) {
+    // ===== Login, BCrypt runs on the bounded password executor, never on the servlet thread =====
+    public CompletableFuture<AuthResponse> login(String username, String password, Origin origin) {
         log.debug("login called for username: {}", username);
 
-        try {
-            Optional<User> userOpt = userService.findByUsernameEntity(username);
-
-            if (userOpt.isEmpty()) {
-                log.warn("Login failed: User not found with username: {}", username);
-                throw new AuthenticationServiceException("Invalid username or password");
-            }
-
-            User user = userOpt.get();
+        Optional<User> userOpt = userService.findByUsernameEntity(username);
 
-            if (!passwordEncoder.matches(password, user.getPassword())) {
-                log.warn("Login failed: Invalid password for username: {}", username);
-                throw new AuthenticationServiceException("Invalid username or password");
-            }
+        if (userOpt.isEmpty()) {
+            log.warn("Login failed: User not found with username: {}", username);
+            return CompletableFuture.failedFuture(new AuthenticationServiceException("Invalid username or password"));
+        }
 
-            List<GrantedAuthority> authorities = user.getRoles().stream()
-                    .map(role -> new SimpleGrantedAuthority(role.getName()))
-                    .map(GrantedAuthority.class::cast)
-                    .toList();
+        User user = userOpt.get();
+        if (deletionService.isDeleting(user)) {
+            log.warn("Login failed: User {} is being deleted", username);
+            return CompletableFuture.failedFuture(new AuthenticationServiceException("Invalid username or password"));
+        }
 
-            CustomUserDetails userDetails = new CustomUserDetails(
-                    user.getUserId(),
-                    user.getUsername(),
-                    user.getPassword(),
-                    user.getEmail(),
-                    authorities
-            );
+        return passwordVerificationExecutor.matches(password, user.getPassword())
+                .thenApplyAsync(matches -> {
+                    if (!matches) {
+                        log.warn("Login failed: Invalid password for username: {}", username);
+                        throw new AuthenticationServiceException("Invalid username or password");
+                    }
+
+                    RoleAuthorities authorities = authoritiesOf(user);
+
+                    CustomUserDetails userDetails = new CustomUserDetails(
+                            user.getUserId(),
+                            user.getUsername(),
+                            user.getPassword(),
+                            user.getEmail(),
+                            authorities
+                    );
+
+                    String accessToken = jwtService.generateAccessToken(userDetails);
+                    log.info("User logged in successfully: {}", username);
+                    sessionMetadataPipeline.publish(user.getUserId(), SessionEventType.LOGIN, origin);
+
+                    return AuthResponse.builder()
+                            .accessToken(accessToken)
+                            .refreshToken(refreshTokenService.issue(user))
+                            .expiresIn(System.currentTimeMillis() + 3600000)
+                            .build();
+                }, applicationTaskExecutor);
+    }
 
-            String accessToken = jwtService.generateAccessToken(userDetails);
-            log.info("User logged in successfully: {}", username);
+    // ===== Renew the session from a refresh token, no password verification =====
+    public AuthResponse refresh(String refreshToken, Origin origin) {
+        log.debug("refresh called");
 
-            return AuthResponse.builder()
-                    .accessToken(accessToken)
-                    .refreshToken(null)
-                    .expiresIn(System.currentTimeMillis() + 3600000)
-                    .build();
+        Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = rotation.user();
 
-        } catch (RuntimeException e) {
-            log.warn("Login failed for username {}: {}", username, e.getMessage());
-            throw e;
-        } catch (Exception e) {
-            log.error("Unexpected error during login for username {}: {}", username, e.getMessage());
-            throw new AuthenticationServiceException("Login failed due to internal error");
-        }
-    }
+        RoleAuthorities authorities = authoritiesOf(user);
 
+        CustomUserDetails userDetails = new CustomUserDetails(
+                user.getUserId(),
+                user.getUsername(),
+                user.getPassword(),
+                user.getEmail(),
+                authorities
+        );
 
+        String accessToken = jwtService.generateAccessToken(userDetails);
+        log.info("Session refreshed for user: {}", user.getUsername());
+        sessionMetadataPipeline.publish(user.getUserId(), SessionEventType.REFRESH, origin);
 
-    public void deleteAccount(String token) {
-        String username = jwtService.extractUsername(token);
-        Optional<User> userOpt = userService.findByUsernameEntity(username);
+        return AuthResponse.builder()
+                .accessToken(accessToken)
+                .refreshToken(rotation.refreshToken())
+                .expiresIn(System.currentTimeMillis() + 3600000)
+                .build();
+    }
 
-        if (userOpt.isPresent()) {
-            userService.removeUserById(userOpt.get().getUserId());
-        } else {
-            throw new AuthenticationServiceException("User not found");
-        }
+    private RoleAuthorities authoritiesOf(User user) {
+        return roleBitIndex.authoritiesOf(user.getRoles().stream().map(Role::getName).toList());
     }
 
 }
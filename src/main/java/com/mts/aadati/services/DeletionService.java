@@ -0,0 +1,383 @@
+package com.mts.aadati.services;
+
+import com.mts.aadati.dto.response.DeletionStatus;
+import com.mts.aadati.dto.response.UserRoleRow;
+import com.mts.aadati.entities.DeletionJob;
+import com.mts.aadati.entities.User;
+import com.mts.aadati.enums.DeletionState;
+import com.mts.aadati.exeption.ServiceBusyException;
+import com.mts.aadati.repository.DeletionJobRepository;
+import com.mts.aadati.repository.UserRepository;
+import com.mts.aadati.search.UserChangedEvent;
+import com.mts.aadati.security.SecurityEpochRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Deletes a user or a habit with set-based statements in dependency order instead of JPA cascades,
+// which load every child and remove it row by row. Each table is emptied in chunks of ids, one short
+// transaction per chunk. A user deletion runs as a background job. Before it starts, a marker on the
+// user row commits together with the revocation of the user's tokens; every node refuses logins and
+// habit or task writes for a marked user, so nothing writes to the rows being removed. The job renews
+// the marker at each step. A job that failed or died with its node leaves the marker behind, the user
+// stays locked out and the stalled deletion is taken over and re-run by the resume sweep of any node.
+// Job progress lives in deletion_job, so any node answers a status poll; failure causes stay in the row.
+@Service
+public class DeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeletionService.class);
+
+    // One table per step: select a chunk of ids, optionally clear a join table for them, delete them
+    private record Step(String phase, String selectIds, String joinTableDelete, String deleteByIds) {
+    }
+
+    private static final List<Step> USER_STEPS = List.of(
+            new Step("task_completion",
+                    "SELECT id(t) FROM TaskCompletion t WHERE t.habitTask.user.userId = :owner",
+                    null,
+                    "DELETE FROM TaskCompletion t WHERE id(t) IN :ids"),
+            new Step("habit_completion",
+                    "SELECT id(c) FROM HabitCompletion c WHERE c.habit.user.userId = :owner",
+                    null,
+                    "DELETE FROM HabitCompletion c WHERE id(c) IN :ids"),
+            new Step("habit",
+                    "SELECT h.habitId FROM Habit h WHERE h.user.userId = :owner",
+                    "DELETE FROM habit_day_of_week WHERE habit_id IN (:ids)",
+                    "DELETE FROM Habit h WHERE h.habitId IN :ids"),
+            new Step("habit_task",
+                    "SELECT t.habitTaskId FROM HabitTask t WHERE t.user.userId = :owner",
+                    null,
+                    "DELETE FROM HabitTask t WHERE t.habitTaskId IN :ids"),
+            new Step("percentage_day",
+                    "SELECT id(p) FROM PercentageDay p WHERE p.user.userId = :owner",
+                    null,
+                    "DELETE FROM PercentageDay p WHERE id(p) IN :ids"),
+            new Step("user_session",
+                    "SELECT id(s) FROM UserSession s WHERE s.user.userId = :owner",
+                    null,
+                    "DELETE FROM UserSession s WHERE id(s) IN :ids"),
+            new Step("refresh_token",
+                    "SELECT id(r) FROM RefreshToken r WHERE r.user.userId = :owner",
+                    null,
+                    "DELETE FROM RefreshToken r WHERE id(r) IN :ids"));
+
+    private static final List<Step> HABIT_STEPS = List.of(
+            new Step("habit_completion",
+                    "SELECT id(c) FROM HabitCompletion c WHERE c.habit.habitId = :owner",
+                    null,
+                    "DELETE FROM HabitCompletion c WHERE id(c) IN :ids"),
+            new Step("habit",
+                    "SELECT h.habitId FROM Habit h WHERE h.habitId = :owner",
+                    "DELETE FROM habit_day_of_week WHERE habit_id IN (:ids)",
+                    "DELETE FROM Habit h WHERE h.habitId IN :ids"));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final UserRepository userRepository;
+    private final DeletionJobRepository deletionJobRepository;
+    private final SecurityEpochRegistry securityEpochRegistry;
+    private final RefreshTokenService refreshTokenService;
+    private final UserStatistics userStatistics;
+    private final HabitWorkingSetCache habitWorkingSetCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int chunkSize;
+    private final Duration retention;
+    private final Duration resumeAfter;
+    private final ThreadPoolExecutor executor;
+    private final Counter deletedRows;
+
+    // Jobs running on this node, by user
+    private final Map<UUID, Job> runningByUser = new ConcurrentHashMap<>();
+
+    public DeletionService(UserRepository userRepository,
+                           DeletionJobRepository deletionJobRepository,
+                           SecurityEpochRegistry securityEpochRegistry,
+                           RefreshTokenService refreshTokenService,
+                           UserStatistics userStatistics,
+                           HabitWorkingSetCache habitWorkingSetCache,
+                           TransactionTemplate transactionTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry,
+                           @Value("${deletion.chunk-size:1000}") int chunkSize,
+                           @Value("${deletion.workers:2}") int workers,
+                           @Value("${deletion.queue-capacity:100}") int queueCapacity,
+                           @Value("${deletion.retention:86400000}") long retentionMillis,
+                           @Value("${deletion.resume-after:900000}") long resumeAfterMillis) {
+        this.userRepository = userRepository;
+        this.deletionJobRepository = deletionJobRepository;
+        this.securityEpochRegistry = securityEpochRegistry;
+        this.refreshTokenService = refreshTokenService;
+        this.userStatistics = userStatistics;
+        this.habitWorkingSetCache = habitWorkingSetCache;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.retention = Duration.ofMillis(retentionMillis);
+        this.resumeAfter = Duration.ofMillis(resumeAfterMillis);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "deletion-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.deletedRows = Counter.builder("deletion.rows").register(meterRegistry);
+        meterRegistry.gauge("deletion.jobs.running", runningByUser, Map::size);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Job {
+        private final UUID jobId;
+        private final UUID userId;
+        private final AtomicLong deleted;
+        private volatile String phase = "pending";
+
+        private Job(UUID jobId, UUID userId, long deleted) {
+            this.jobId = jobId;
+            this.userId = userId;
+            this.deleted = new AtomicLong(deleted);
+        }
+    }
+
+    // ===== User deletion, asynchronous =====
+    // Returns the id of the job, the one already running for the user if there is one
+    public UUID deleteUser(UUID userId) {
+        Job job = new Job(UUID.randomUUID(), userId, 0);
+        Job running = runningByUser.putIfAbsent(userId, job);
+        if (running != null) {
+            return running.jobId;
+        }
+
+        try {
+            // Marker, epoch bump, token revocation and the job row commit together, before any row is touched
+            transactionTemplate.executeWithoutResult(status -> {
+                if (userRepository.markDeleting(userId, Instant.now()) == 0) {
+                    throw new NoSuchElementException("User not found");
+                }
+                securityEpochRegistry.bump(userId);
+                refreshTokenService.revokeAllForUser(userId);
+                entityManager.persist(DeletionJob.builder().deletionJobId(job.jobId).userId(userId).build());
+            });
+        } catch (RuntimeException e) {
+            runningByUser.remove(userId);
+            throw e;
+        }
+
+        if (!start(job)) {
+            // Nothing was deleted, give the account back; its tokens stay revoked
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.clearDeleting(userId);
+                deletionJobRepository.deleteById(job.jobId);
+            });
+            throw new ServiceBusyException("Too many deletions in progress, retry later", 30);
+        }
+        logger.info("User deletion job {} started for user {}", job.jobId, userId);
+        return job.jobId;
+    }
+
+    // The marker is on the loaded row; the local job covers the moment before it commits
+    public boolean isDeleting(User user) {
+        return user != null && (user.isDeleting() || runningByUser.containsKey(user.getUserId()));
+    }
+
+    public Optional<DeletionStatus> status(UUID jobId) {
+        return deletionJobRepository.findById(jobId)
+                .map(job -> new DeletionStatus(job.getState(), job.getPhase(), job.getDeletedRows()));
+    }
+
+    private boolean start(Job job) {
+        try {
+            executor.execute(() -> run(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            runningByUser.remove(job.userId);
+            logger.warn("User deletion rejected for {}: {} jobs queued", job.userId, executor.getQueue().size());
+            return false;
+        }
+    }
+
+    private void run(Job job) {
+        UUID userId = job.userId;
+        try {
+            // Read before the rows go, the counters need them
+            Boolean emailVerified = transactionTemplate.execute(status -> userRepository.findById(userId)
+                    .map(User::isEmailVerified)
+                    .orElse(null));
+            List<String> roleNames = userRepository.findRoleNamesByUserIds(List.of(userId)).stream()
+                    .map(UserRoleRow::roleName)
+                    .toList();
+
+            for (Step step : USER_STEPS) {
+                job.phase = step.phase();
+                // Renew the marker so no other node takes the job over while it makes progress
+                transactionTemplate.executeWithoutResult(status -> {
+                    userRepository.markDeleting(userId, Instant.now());
+                    deletionJobRepository.updateProgress(job.jobId, DeletionState.RUNNING, job.phase, job.deleted.get());
+                });
+                deleteInChunks(step, userId, job.deleted);
+            }
+
+            job.phase = "users";
+            transactionTemplate.executeWithoutResult(status -> {
+                int removed = entityManager.createNativeQuery("DELETE FROM user_role WHERE user_id = :userId")
+                        .setParameter("userId", userId)
+                        .executeUpdate();
+                int users = entityManager.createQuery("DELETE FROM User u WHERE u.userId = :userId")
+                        .setParameter("userId", userId)
+                        .executeUpdate();
+                job.deleted.addAndGet(removed + users);
+                deletedRows.increment(removed + users);
+                // A resumed job can find the row already gone, count the user once
+                if (users > 0) {
+                    eventPublisher.publishEvent(UserChangedEvent.removed(userId));
+                    if (emailVerified != null) {
+                        userStatistics.userRemoved(emailVerified, roleNames);
+                    }
+                }
+                deletionJobRepository.finish(job.jobId, DeletionState.COMPLETED, job.deleted.get(), null, Instant.now());
+            });
+
+            habitWorkingSetCache.invalidate(userId);
+            logger.info("User deletion job {} finished for user {}: {} rows", job.jobId, userId, job.deleted.get());
+        } catch (RuntimeException e) {
+            // The marker stays, the user remains locked out until the resume sweep completes the deletion
+            logger.error("User deletion job {} failed for user {} during {}, it will be resumed",
+                    job.jobId, userId, job.phase, e);
+            recordFailure(job, e);
+        } finally {
+            runningByUser.remove(userId);
+        }
+    }
+
+    // Best effort: the database may be what failed, the resume sweep does not depend on this row
+    private void recordFailure(Job job, RuntimeException e) {
+        String cause = job.phase + ": " + e;
+        try {
+            transactionTemplate.executeWithoutResult(status -> deletionJobRepository.finish(job.jobId,
+                    DeletionState.FAILED, job.deleted.get(), cause.substring(0, Math.min(cause.length(), 500)), Instant.now()));
+        } catch (RuntimeException recordError) {
+            logger.warn("Could not record the failure of deletion job {}: {}", job.jobId, recordError.getMessage());
+        }
+    }
+
+    // Deletions whose marker was not renewed for resume-after: failed, or lost with their node.
+    // Claiming compares the marker it read, so only one node takes each of them over.
+    @Scheduled(fixedDelayString = "${deletion.resume-interval:300000}")
+    public void resumeStalled() {
+        List<User> stalled = userRepository.findStalledDeletions(Instant.now().minus(resumeAfter), PageRequest.of(0, 100));
+        for (User user : stalled) {
+            UUID userId = user.getUserId();
+            // Continue the job the user was given, so its status poll sees the deletion through
+            Optional<DeletionJob> previous = deletionJobRepository.findFirstByUserIdOrderByStartedAtDesc(userId);
+            Job job = previous
+                    .map(row -> new Job(row.getDeletionJobId(), userId, row.getDeletedRows()))
+                    .orElseGet(() -> new Job(UUID.randomUUID(), userId, 0));
+            if (runningByUser.putIfAbsent(userId, job) != null) {
+                continue;
+            }
+            Integer claimed = transactionTemplate.execute(status -> {
+                if (userRepository.claimDeletion(userId, user.getDeletionStartedAt(), Instant.now()) == 0) {
+                    return 0;
+                }
+                if (previous.isPresent()) {
+                    deletionJobRepository.updateProgress(job.jobId, DeletionState.RUNNING, job.phase, job.deleted.get());
+                } else {
+                    entityManager.persist(DeletionJob.builder().deletionJobId(job.jobId).userId(userId).build());
+                }
+                return 1;
+            });
+            if (claimed == null || claimed == 0) {
+                runningByUser.remove(userId);
+                continue;
+            }
+            if (start(job)) {
+                logger.info("User deletion job {} resumed for user {}", job.jobId, userId);
+            }
+        }
+    }
+
+    // ===== Habit deletion, synchronous: one habit's history is small =====
+    public long deleteHabit(UUID habitId) {
+        AtomicLong deleted = new AtomicLong();
+        for (Step step : HABIT_STEPS) {
+            deleteInChunks(step, habitId, deleted);
+        }
+        logger.info("Habit {} deleted with {} rows", habitId, deleted.get());
+        return deleted.get();
+    }
+
+    // ===== Chunked set-based delete, joins the caller's transaction when there is one =====
+    private void deleteInChunks(Step step, UUID owner, AtomicLong deleted) {
+        int removed;
+        do {
+            removed = transactionTemplate.execute(status -> {
+                List<?> ids = entityManager.createQuery(step.selectIds())
+                        .setParameter("owner", owner)
+                        .setMaxResults(chunkSize)
+                        .getResultList();
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                int rows = 0;
+                if (step.joinTableDelete() != null) {
+                    rows += entityManager.createNativeQuery(step.joinTableDelete())
+                            .setParameter("ids", ids)
+                            .executeUpdate();
+                }
+                rows += entityManager.createQuery(step.deleteByIds())
+                        .setParameter("ids", ids)
+                        .executeUpdate();
+                return rows;
+            });
+            deleted.addAndGet(removed);
+            deletedRows.increment(removed);
+        } while (removed > 0);
+    }
+
+    @Scheduled(fixedDelayString = "${deletion.purge-interval:3600000}")
+    public void purgeFinished() {
+        Instant cutoff = Instant.now().minus(retention);
+        Integer purged = transactionTemplate.execute(status -> deletionJobRepository.deleteFinishedBefore(cutoff));
+        logger.debug("Purged {} finished deletion jobs", purged);
+    }
+}
@@ -1,10 +1,13 @@
 package com.mts.aadati.services;
 
 import com.mts.aadati.dto.mapper.HabitCompletionMapper;
+import com.mts.aadati.dto.response.CursorPage;
 import com.mts.aadati.dto.response.HabitCompletionResponse;
 import com.mts.aadati.entities.*;
 import com.mts.aadati.repository.HabitCompletionRepository;
-import com.mts.aadati.repository.UserRepository;
+import com.mts.aadati.repository.HabitCompletionSeekRepository;
+import com.mts.aadati.security.UserReferenceResolver;
+import com.mts.aadati.utils.PageCursor;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +17,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.DateTimeException;
 import java.time.Instant;
 import java.util.*;
 /**
@@ -27,7 +31,9 @@ public class HabitCompletionService {
     private static final String SORT_COMPLETED_AT = "completedAt";
 
     private final HabitCompletionRepository habitCompletionRepository;
-    private final UserRepository userRepository;
+    private final HabitCompletionSeekRepository habitCompletionSeekRepository;
+    private final UserReferenceResolver userReferenceResolver;
+    private final ListCountCache listCountCache;
     private static final Logger log = LoggerFactory.getLogger(HabitCompletionService.class);
 
     // ===== Helper Methods =====
@@ -42,7 +48,23 @@ public class HabitCompletionService {
             log.warn("getExistingUser failed: userId is null");
             return Optional.empty();
         }
-        return userRepository.findById(userId);
+        return userReferenceResolver.resolve(userId);
+    }
+
+    // Writes are refused while the user is being deleted
+    private Optional<User> getWritableUser(UUID userId) {
+        log.debug("getWritableUser called with userId: {}", userId);
+        if (userId == null) {
+            log.warn("getWritableUser failed: userId is null");
+            return Optional.empty();
+        }
+        return userReferenceResolver.resolveForWrite(userId);
+    }
+
+    // Only the user's id is read, the user itself is not loaded
+    private static UUID ownerOf(HabitCompletion completion) {
+        Habit habit = completion.getHabit();
+        return habit != null && habit.getUser() != null ? habit.getUser().getUserId() : null;
     }
 
     // ===== Create =====
@@ -56,6 +78,7 @@ public class HabitCompletionService {
 
         try {
             HabitCompletion saved = habitCompletionRepository.save(habitCompletion);
+            listCountCache.evict(ownerOf(saved));
             log.info("HabitCompletion created: {}", saved.getHabitCompletionId());
             return Optional.of(saved);
         } catch (Exception e) {
@@ -74,6 +97,7 @@ public class HabitCompletionService {
 
         try {
             List<HabitCompletion> saved = habitCompletionRepository.saveAll(habitCompletionList);
+            saved.stream().map(HabitCompletionService::ownerOf).distinct().forEach(listCountCache::evict);
             log.info("Successfully saved {} habitCompletion items", saved.size());
             return true;
         } catch (Exception e) {
@@ -97,7 +121,7 @@ public class HabitCompletionService {
 
     // ===== Update status =====
     public Optional<HabitCompletionResponse> updateStatus(UUID userId, UUID completionId, boolean complete) {
-        return getExistingUser(userId).flatMap(user -> {
+        return getWritableUser(userId).flatMap(user -> {
             if (completionId == null) {
                 log.warn("updateStatus failed: invalid completionId");
                 return Optional.empty();
@@ -257,6 +281,47 @@ public class HabitCompletionService {
         }).orElse(Page.empty());
     }
 
+    // ===== Keyset Pageable =====
+    // Newest completion first, uncompleted ones last; empty when the cursor was not handed out by this list
+    public Optional<CursorPage<HabitCompletionResponse>> cursorAll(UUID userId, String cursor, int pageSize, boolean withTotal) {
+        Optional<PageCursor> after = PageCursor.decode(cursor);
+        if (cursor != null && !cursor.isBlank() && after.isEmpty()) {
+            log.warn("cursorAll: invalid cursor for user {}", userId);
+            return Optional.empty();
+        }
+        Instant completedAt;
+        try {
+            completedAt = after.map(PageCursor::key).map(Instant::parse).orElse(null);
+        } catch (DateTimeException e) {
+            log.warn("cursorAll: invalid cursor for user {}", userId);
+            return Optional.empty();
+        }
+        int size = PageCursor.pageSize(pageSize);
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        return Optional.of(getExistingUser(userId).map(user -> {
+            List<HabitCompletion> completions;
+            if (after.isEmpty()) {
+                completions = habitCompletionSeekRepository.findFirstPage(user, limit);
+            } else if (completedAt == null) {
+                completions = habitCompletionSeekRepository.findUncompletedPageAfter(user, after.get().id(), limit);
+            } else {
+                completions = habitCompletionSeekRepository.findPageAfter(user, completedAt, after.get().id(), limit);
+            }
+            String nextCursor = null;
+            if (completions.size() > size) {
+                completions = completions.subList(0, size);
+                HabitCompletion last = completions.get(size - 1);
+                String key = last.getCompletedAt() == null ? null : last.getCompletedAt().toString();
+                nextCursor = new PageCursor(key, last.getHabitCompletionId()).encode();
+            }
+            Long total = withTotal
+                    ? listCountCache.get("habit-completion", userId, () -> habitCompletionSeekRepository.countByUser(user))
+                    : null;
+            return new CursorPage<>(completions.stream().map(HabitCompletionMapper::toResponse).toList(), nextCursor, total);
+        }).orElseGet(CursorPage::empty));
+    }
+
     // ===== Search (non-pageable) =====
     public List<HabitCompletionResponse> searchByTitle(UUID userId, String title) {
         return getExistingUser(userId).map(user -> {
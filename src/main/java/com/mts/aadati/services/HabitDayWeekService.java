@@ -2,7 +2,9 @@ package com.mts.aadati.services;
 
 import com.mts.aadati.entities.Habit;
 import com.mts.aadati.entities.HabitDayWeek;
+import com.mts.aadati.initialization.HabitScheduleMaskMigration;
 import com.mts.aadati.repository.HabitDayWeekRepository;
+import com.mts.aadati.repository.HabitRepository;
 import com.mts.aadati.dto.mapper.HabitDayWeekMapper;
 import com.mts.aadati.dto.request.HabitDayWeekRequest;
 import com.mts.aadati.dto.response.HabitDayWeekResponse;
@@ -24,6 +26,9 @@ import java.util.*;
 public class HabitDayWeekService {
 
     private final HabitDayWeekRepository habitDayWeekRepository;
+    private final HabitRepository habitRepository;
+    private final HabitWorkingSetCache habitWorkingSetCache;
+    private final HabitScheduleMaskMigration habitScheduleMaskMigration;
 
     private static final Logger logger = LoggerFactory.getLogger(HabitDayWeekService.class);
 
@@ -99,8 +104,11 @@ public class HabitDayWeekService {
 
         HabitDayWeek existing = existingOpt.get();
         existing.setDayOfWeek(request.getDayOfWeek());
-        HabitDayWeek saved = habitDayWeekRepository.save(existing);
-        logger.info("HabitDayWeek updated successfully with id {}", id);
+        HabitDayWeek saved = habitDayWeekRepository.saveAndFlush(existing);
+        // The schedule masks of the habits on this row still carry the previous day
+        int habits = habitRepository.recomputeScheduleMasks(id);
+        habitWorkingSetCache.invalidateAll();
+        logger.info("HabitDayWeek updated successfully with id {}, {} habit schedules recomputed", id, habits);
         return Optional.of(HabitDayWeekMapper.toResponse(saved));
     }
 
@@ -111,7 +119,14 @@ public class HabitDayWeekService {
             logger.warn("findHabitsByDayOfWeek failed: dayOfWeek is null or blank");
             return Collections.emptyList();
         }
-        List<Habit> habits = habitDayWeekRepository.findHabitsByDayOfWeek(dayOfWeek);
+        DayOfWeek day;
+        try {
+            day = DayOfWeek.valueOf(dayOfWeek.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warn("findHabitsByDayOfWeek failed: unknown day {}", dayOfWeek);
+            return Collections.emptyList();
+        }
+        List<Habit> habits = habitRepository.findScheduledOn(day, Habit.masksWith(day), !habitScheduleMaskMigration.isComplete());
         logger.info("Found {} habits for day {}", habits.size(), dayOfWeek);
         return habits;
     }
@@ -121,7 +136,7 @@ public class HabitDayWeekService {
             logger.warn("countHabitsByDayOfWeek failed: day is null");
             return -1;
         }
-        long count = habitDayWeekRepository.countHabitsByDayOfWeek(day);
+        long count = habitRepository.countScheduledOn(day, Habit.masksWith(day), !habitScheduleMaskMigration.isComplete());
         logger.info("Number of habits for {}: {}", day, count);
         return count;
     }
@@ -1,18 +1,23 @@
 package com.mts.aadati.services;
 
 import com.mts.aadati.dto.request.HabitRequest;
+import com.mts.aadati.dto.response.CursorPage;
+import com.mts.aadati.dto.response.HabitDayWeekRow;
 import com.mts.aadati.dto.response.HabitResponse;
 import com.mts.aadati.entities.Habit;
 import com.mts.aadati.entities.HabitCategory;
 import com.mts.aadati.entities.HabitDayWeek;
 import com.mts.aadati.entities.User;
 import com.mts.aadati.dto.mapper.HabitMapper;
+import com.mts.aadati.initialization.HabitScheduleMaskMigration;
 import com.mts.aadati.initialization.InitializationHabitCompletion;
 import com.mts.aadati.repository.HabitCategoryRepository;
 import com.mts.aadati.repository.HabitDayWeekRepository;
 import com.mts.aadati.repository.HabitRepository;
 
-import com.mts.aadati.repository.UserRepository;
+import com.mts.aadati.security.UserReferenceResolver;
+import com.mts.aadati.services.HabitWorkingSetCache.Snapshot;
+import com.mts.aadati.utils.PageCursor;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,7 +25,9 @@ import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
 import java.util.*;
+import java.util.function.Predicate;
 /**
  * © 2025 Mohamed Taha
  * This file is part of the MTS Aadati Application.
@@ -35,7 +42,11 @@ public class HabitService {
     private final HabitRepository habitRepository;
     private final HabitCategoryRepository habitCategoryRepository;
     private final HabitDayWeekRepository habitDayWeekRepository;
-    private final UserRepository userRepository;
+    private final UserReferenceResolver userReferenceResolver;
+    private final DeletionService deletionService;
+    private final ListCountCache listCountCache;
+    private final HabitWorkingSetCache habitWorkingSetCache;
+    private final HabitScheduleMaskMigration habitScheduleMaskMigration;
 
     private static final Logger logger = LoggerFactory.getLogger(HabitService.class);
 
@@ -46,9 +57,58 @@ public class HabitService {
             logger.warn("getExistingUser failed: userId is null");
             return Optional.empty();
         }
-        return userRepository.findById(userId);
+        return userReferenceResolver.resolve(userId);
     }
 
+    // Writes are refused while the user is being deleted
+    private Optional<User> getWritableUser(UUID userId) {
+        logger.debug("getWritableUser called with userId: {}", userId);
+        if (userId == null) {
+            logger.warn("getWritableUser failed: userId is null");
+            return Optional.empty();
+        }
+        return userReferenceResolver.resolveForWrite(userId);
+    }
+
+
+    // Maps a page of habits with the day-of-week ids of all of them read in one query,
+    // instead of initializing each habit's collection on its own
+    private Page<HabitResponse> toResponses(Page<Habit> habits) {
+        return new PageImpl<>(toResponses(habits.getContent()), habits.getPageable(), habits.getTotalElements());
+    }
+
+    private List<HabitResponse> toResponses(List<Habit> habits) {
+        if (habits.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<UUID, List<Long>> dayWeekIds = new HashMap<>();
+        for (HabitDayWeekRow row : habitRepository.findDayWeekIdsByHabitIds(
+                habits.stream().map(Habit::getHabitId).toList())) {
+            dayWeekIds.computeIfAbsent(row.habitId(), id -> new ArrayList<>()).add(row.dayWeekId());
+        }
+        return habits.stream()
+                .map(habit -> HabitMapper.toResponse(habit, dayWeekIds.get(habit.getHabitId())))
+                .toList();
+    }
+
+    // A page of the cached working set, kept in its (title, id) order unless sorted by point
+    private static Page<HabitResponse> pageOf(List<Snapshot> habits, Predicate<Snapshot> filter,
+                                              Pageable pageable, UUID userId) {
+        List<Snapshot> matching = habits.stream().filter(filter).toList();
+        if (pageable.getSort().getOrderFor("point") != null) {
+            matching = matching.stream().sorted(Comparator.comparingDouble(Snapshot::point)).toList();
+        }
+        int from = (int) Math.min(pageable.getOffset(), matching.size());
+        int to = Math.min(from + pageable.getPageSize(), matching.size());
+        List<HabitResponse> content = matching.subList(from, to).stream()
+                .map(snapshot -> snapshot.toResponse(userId))
+                .toList();
+        return new PageImpl<>(content, pageable, matching.size());
+    }
+
+    private static long countOf(List<Snapshot> habits, Predicate<Snapshot> filter) {
+        return habits.stream().filter(filter).count();
+    }
 
     private Optional<HabitCategory> getExistingCategory(UUID categoryId) {
         logger.debug("getExistingCategory called with categoryId: {}", categoryId);
@@ -82,7 +142,7 @@ public class HabitService {
             return Optional.empty();
         }
 
-        Optional<User> userOpt = getExistingUser(userId);
+        Optional<User> userOpt = getWritableUser(userId);
         if (userOpt.isEmpty()) {
             logger.warn("addHabit failed: user not found with id: {}", userId);
             throw new NoSuchElementException("User not found");
@@ -107,10 +167,12 @@ public class HabitService {
                 logger.warn("addHabit failed: some day week IDs were not found");
                 throw new IllegalArgumentException("Some day of week IDs were not found");
             }
-            habit.getHabitDayWeeks().addAll(dayWeeks);
+            habit.setSchedule(dayWeeks);
         }
 
         Habit saved = habitRepository.save(habit);
+        habitWorkingSetCache.invalidate(userId);
+        listCountCache.evict(userId);
         logger.info("Habit added successfully: {} for user: {} with {} days",
                 saved.getTitle(), userId, saved.getHabitDayWeeks().size());
         initializationHabitCompletion.addNewHabitToCompletion(saved);
@@ -133,6 +195,8 @@ public class HabitService {
         updateHabitFields(existing, request, userId);
 
         Habit saved = habitRepository.save(existing);
+        habitWorkingSetCache.invalidate(userId);
+        listCountCache.evict(userId);
         logger.info("Habit updated successfully: {} for user: {} with {} days",
                 saved.getTitle(), userId, saved.getHabitDayWeeks().size());
 
@@ -141,7 +205,7 @@ public class HabitService {
     }
 
     private User validateUser(UUID userId) {
-        return getExistingUser(userId).orElseThrow(() -> {
+        return getWritableUser(userId).orElseThrow(() -> {
             logger.warn("updateHabit failed: user not found with id: {}", userId);
             return new NoSuchElementException("User not found");
         });
@@ -190,15 +254,15 @@ public class HabitService {
     private void updateDayWeeks(Habit existing, HabitRequest request) {
         if (request.getHabitDayWeekIds() == null) return;
 
-        existing.getHabitDayWeeks().clear();
+        List<HabitDayWeek> dayWeeks = Collections.emptyList();
         if (!request.getHabitDayWeekIds().isEmpty()) {
-            List<HabitDayWeek> dayWeeks = habitDayWeekRepository.findAllById(request.getHabitDayWeekIds());
+            dayWeeks = habitDayWeekRepository.findAllById(request.getHabitDayWeekIds());
             if (dayWeeks.size() != request.getHabitDayWeekIds().size()) {
                 logger.warn("updateHabit failed: some day week IDs were not found");
                 throw new IllegalArgumentException("Some day of week IDs were not found");
             }
-            existing.getHabitDayWeeks().addAll(dayWeeks);
         }
+        existing.setSchedule(dayWeeks);
     }
 
 
@@ -206,7 +270,7 @@ public class HabitService {
     public boolean deleteHabit(UUID userId, UUID habitId) {
         logger.debug("deleteHabit called for userId: {}, habitId: {}", userId, habitId);
 
-        Optional<User> userOpt = getExistingUser(userId);
+        Optional<User> userOpt = getWritableUser(userId);
         if (userOpt.isEmpty()) {
             logger.warn("deleteHabit failed: user not found with id: {}", userId);
             return false;
@@ -225,6 +289,8 @@ public class HabitService {
 
         Habit habit = habitOpt.get().deactivate();
         habitRepository.save(habit);
+        habitWorkingSetCache.invalidate(userId);
+        listCountCache.evict(userId);
         logger.info("Habit deactivated successfully: {} for user: {}", habit.getTitle(), userId);
         return true;
     }
@@ -248,7 +314,8 @@ public class HabitService {
             return Collections.emptyList();
         }
 
-        return  habitRepository.findByHabitDayWeeks(habitDayWeek);
+        DayOfWeek day = habitDayWeek.getDayOfWeek();
+        return habitRepository.findScheduledOn(day, Habit.masksWith(day), !habitScheduleMaskMigration.isComplete());
     }
 
 
@@ -257,7 +324,7 @@ public class HabitService {
     public boolean permanentDeleteHabit(UUID userId, UUID habitId) {
         logger.debug("permanentDeleteHabit called for userId: {}, habitId: {}", userId, habitId);
 
-        Optional<User> userOpt = getExistingUser(userId);
+        Optional<User> userOpt = getWritableUser(userId);
         if (userOpt.isEmpty()) {
             logger.warn("permanentDeleteHabit failed: user not found with id: {}", userId);
             return false;
@@ -274,7 +341,10 @@ public class HabitService {
             return false;
         }
 
-        habitRepository.delete(habitOpt.get());
+        // Completions and day links go with set-based deletes, not through the orphanRemoval cascade
+        deletionService.deleteHabit(habitId);
+        habitWorkingSetCache.invalidate(userId);
+        listCountCache.evict(userId);
         logger.info("Habit permanently deleted for user: {}", userId);
         return true;
     }
@@ -293,6 +363,14 @@ public class HabitService {
             return Optional.empty();
         }
 
+        Optional<List<Snapshot>> cached = habitWorkingSetCache.activeHabits(userOpt.get());
+        if (cached.isPresent()) {
+            return cached.get().stream()
+                    .filter(snapshot -> snapshot.habitId().equals(habitId))
+                    .findFirst()
+                    .map(snapshot -> snapshot.toResponse(userId));
+        }
+
         return habitRepository.findByHabitIdAndUserAndIsActiveTrue(habitId, userOpt.get())
                 .map(habit -> {
                     logger.info("Found habit: {} for user: {}", habit.getTitle(), userId);
@@ -310,12 +388,19 @@ public class HabitService {
             return Collections.emptyList();
         }
 
+        Optional<List<Snapshot>> cached = habitWorkingSetCache.activeHabits(userOpt.get());
+        if (cached.isPresent()) {
+            String needle = title.toLowerCase(Locale.ROOT);
+            return cached.get().stream()
+                    .filter(snapshot -> snapshot.title().toLowerCase(Locale.ROOT).contains(needle))
+                    .map(snapshot -> snapshot.toResponse(userId))
+                    .toList();
+        }
+
         List<Habit> habits = habitRepository.findByTitleContainingIgnoreCaseAndUserAndIsActiveTrue(title, userOpt.get());
         logger.info("Found {} habits with title containing: {} for user: {}", habits.size(), title, userId);
 
-        return habits.stream()
-                .map(HabitMapper::toResponse)
-                .toList();
+        return toResponses(habits);
     }
 
     public Page<HabitResponse> filterHabits(UUID userId, UUID categoryId, Long dayWeekId,
@@ -329,6 +414,16 @@ public class HabitService {
             return Page.empty();
         }
 
+        // An unknown category or day matches no cached habit, as it finds none in the database
+        Optional<List<Snapshot>> cached = habitWorkingSetCache.activeHabits(userOpt.get());
+        if (cached.isPresent()) {
+            return pageOf(cached.get(), snapshot ->
+                            (categoryId == null || categoryId.equals(snapshot.habitCategoryId())) &&
+                            (dayWeekId == null || snapshot.habitDayWeekIds().contains(dayWeekId)) &&
+                            (type == null || snapshot.type() == type),
+                    createPageable(pageNumber, pageSize, TITLE), userId);
+        }
+
         Optional<HabitCategory> categoryOpt = categoryId != null ? getExistingCategory(categoryId) : Optional.empty();
         Optional<HabitDayWeek> dayWeekOpt = dayWeekId != null ? getExistingHabitDayWeek(dayWeekId) : Optional.empty();
 
@@ -342,13 +437,15 @@ public class HabitService {
         Page<Habit> habits = habitRepository.filterHabits(
                 userOpt.get(),
                 categoryOpt.orElse(null),
-                dayWeekOpt.orElse(null),
+                dayWeekOpt.map(HabitDayWeek::getDayOfWeek).orElse(null),
+                dayWeekOpt.map(dayWeek -> Habit.masksWith(dayWeek.getDayOfWeek())).orElse(List.of(0)),
+                !habitScheduleMaskMigration.isComplete(),
                 type,
                 pageable
         );
 
         logger.info("Found {} filtered habits for user: {}", habits.getTotalElements(), userId);
-        return habits.map(HabitMapper::toResponse);
+        return toResponses(habits);
     }
 
     public Page<HabitResponse> pageableByType(UUID userId, boolean type, int pageNumber, int pageSize) {
@@ -361,10 +458,14 @@ public class HabitService {
         }
 
         Pageable pageable = createPageable(pageNumber, pageSize, TITLE);
+        Optional<List<Snapshot>> cached = habitWorkingSetCache.activeHabits(userOpt.get());
+        if (cached.isPresent()) {
+            return pageOf(cached.get(), snapshot -> snapshot.type() == type, pageable, userId);
+        }
         Page<Habit> habits = habitRepository.findByUserAndTypeAndIsActiveTrue(userOpt.get(), type, pageable);
 
         logger.info("Found {} habits with type: {} for user: {}", habits.getTotalElements(), type, userId);
-        return habits.map(HabitMapper::toResponse);
+        return toResponses(habits);
     }
 
     public Page<HabitResponse> pageableByPoint(UUID userId, double point, int pageNumber, int pageSize) {
@@ -377,10 +478,14 @@ public class HabitService {
         }
 
         Pageable pageable = createPageable(pageNumber, pageSize, "point");
+        Optional<List<Snapshot>> cached = habitWorkingSetCache.activeHabits(userOpt.get());
+        if (cached.isPresent()) {
+            return pageOf(cached.get(), snapshot -> snapshot.point() == point, pageable, userId);
+        }
         Page<Habit> habits = habitRepository.findByUserAndPointAndIsActiveTrue(userOpt.get(), point, pageable);
 
         logger.info("Found {} habits with point: {} for user: {}", habits.getTotalElements(), point, userId);
-        return habits.map(HabitMapper::toResponse);
+        return toResponses(habits);
     }
 
     public Page<HabitResponse> pageableAllActive(UUID userId, int pageNumber, int pageSize) {
@@ -393,10 +498,14 @@ public class HabitService {
         }
 
         Pageable pageable = createPageable(pageNumber, pageSize, TITLE);
+        Optional<List<Snapshot>> cached = habitWorkingSetCache.activeHabits(userOpt.get());
+        if (cached.isPresent()) {
+            return pageOf(cached.get(), snapshot -> true, pageable, userId);
+        }
         Page<Habit> habits = habitRepository.findAllByUserAndIsActiveTrue(userOpt.get(), pageable);
 
         logger.info("Found {} active habits for user: {}", habits.getTotalElements(), userId);
-        return habits.map(HabitMapper::toResponse);
+        return toResponses(habits);
     }
 
     public Page<HabitResponse> pageableAllInactive(UUID userId, int pageNumber, int pageSize) {
@@ -412,13 +521,18 @@ public class HabitService {
         Page<Habit> habits = habitRepository.findAllByUserAndIsActiveFalse(userOpt.get(), pageable);
 
         logger.info("Found {} inactive habits for user: {}", habits.getTotalElements(), userId);
-        return habits.map(HabitMapper::toResponse);
+        return toResponses(habits);
     }
 
     public Page<HabitResponse> pageableByCategory(UUID userId, UUID categoryId, int pageNumber, int pageSize) {
         logger.debug("pageableByCategory called for userId: {}, categoryId: {}", userId, categoryId);
 
         Optional<User> userOpt = getExistingUser(userId);
+        Optional<List<Snapshot>> cached = userOpt.flatMap(habitWorkingSetCache::activeHabits);
+        if (cached.isPresent()) {
+            return pageOf(cached.get(), snapshot -> Objects.equals(categoryId, snapshot.habitCategoryId()),
+                    createPageable(pageNumber, pageSize, TITLE), userId);
+        }
         Optional<HabitCategory> categoryOpt = getExistingCategory(categoryId);
 
         if (userOpt.isEmpty() || categoryOpt.isEmpty()) {
@@ -431,13 +545,18 @@ public class HabitService {
                 userOpt.get(), categoryOpt.get(), pageable);
 
         logger.info("Found {} habits in category for user: {}", habits.getTotalElements(), userId);
-        return habits.map(HabitMapper::toResponse);
+        return toResponses(habits);
     }
 
     public Page<HabitResponse> pageableByDayOfWeek(UUID userId, long habitDayWeekId, int pageNumber, int pageSize) {
         logger.debug("pageableByDayOfWeek called for userId: {}, habitDayWeekId: {}", userId, habitDayWeekId);
 
         Optional<User> userOpt = getExistingUser(userId);
+        Optional<List<Snapshot>> cached = userOpt.flatMap(habitWorkingSetCache::activeHabits);
+        if (cached.isPresent()) {
+            return pageOf(cached.get(), snapshot -> snapshot.habitDayWeekIds().contains(habitDayWeekId),
+                    createPageable(pageNumber, pageSize, TITLE), userId);
+        }
         Optional<HabitDayWeek> dayWeekOpt = getExistingHabitDayWeek(habitDayWeekId);
 
         if (userOpt.isEmpty() || dayWeekOpt.isEmpty()) {
@@ -446,11 +565,51 @@ public class HabitService {
         }
 
         Pageable pageable = createPageable(pageNumber, pageSize, TITLE);
-        Page<Habit> habits = habitRepository.findByUserAndHabitDayWeeksContainingAndIsActiveTrue(
-                userOpt.get(), dayWeekOpt.get(), pageable);
+        DayOfWeek day = dayWeekOpt.get().getDayOfWeek();
+        Page<Habit> habits = habitRepository.findActiveScheduledOn(
+                userOpt.get(), day, Habit.masksWith(day), !habitScheduleMaskMigration.isComplete(), pageable);
 
         logger.info("Found {} habits for day of week for user: {}", habits.getTotalElements(), userId);
-        return habits.map(HabitMapper::toResponse);
+        return toResponses(habits);
+    }
+
+    // ===== Keyset Pageable =====
+    // Empty when the cursor was not handed out by this list
+    public Optional<CursorPage<HabitResponse>> cursorAllActive(UUID userId, String cursor, int pageSize, boolean withTotal) {
+        logger.debug("cursorAllActive called for userId: {}", userId);
+
+        Optional<PageCursor> after = PageCursor.decode(cursor);
+        if (cursor != null && !cursor.isBlank() && after.map(PageCursor::key).isEmpty()) {
+            logger.warn("cursorAllActive failed: invalid cursor for user: {}", userId);
+            return Optional.empty();
+        }
+
+        Optional<User> userOpt = getExistingUser(userId);
+        if (userOpt.isEmpty()) {
+            logger.warn("cursorAllActive failed: user not found with id: {}", userId);
+            return Optional.of(CursorPage.empty());
+        }
+        User user = userOpt.get();
+
+        int size = PageCursor.pageSize(pageSize);
+        // One extra row tells whether another page follows
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Habit> habits = after
+                .map(last -> habitRepository.findActivePageAfter(user, last.key(), last.id(), limit))
+                .orElseGet(() -> habitRepository.findActiveFirstPage(user, limit));
+
+        String nextCursor = null;
+        if (habits.size() > size) {
+            habits = habits.subList(0, size);
+            Habit last = habits.get(size - 1);
+            nextCursor = new PageCursor(last.getTitle(), last.getHabitId()).encode();
+        }
+        Long total = withTotal
+                ? listCountCache.get("habit.active", userId, () -> habitRepository.countByUserAndIsActiveTrue(user))
+                : null;
+
+        logger.info("Found {} active habits after cursor for user: {}", habits.size(), userId);
+        return Optional.of(new CursorPage<>(toResponses(habits), nextCursor, total));
     }
 
     // ===== Helper Methods Exists =====
@@ -464,7 +623,9 @@ public class HabitService {
             return false;
         }
 
-        boolean exists = habitRepository.existsByHabitIdAndUserAndIsActiveTrue(habitId, userOpt.get());
+        boolean exists = habitWorkingSetCache.activeHabits(userOpt.get())
+                .map(habits -> countOf(habits, snapshot -> snapshot.habitId().equals(habitId)) > 0)
+                .orElseGet(() -> habitRepository.existsByHabitIdAndUserAndIsActiveTrue(habitId, userOpt.get()));
         logger.info("Habit {} exists for user {}: {}", habitId, userId, exists);
         return exists;
     }
@@ -478,6 +639,8 @@ public class HabitService {
             return false;
         }
 
+        // Guards writes, so it stays on the database: its collation decides what counts as the same
+        // title, and another node's insert is seen at once
         boolean exists = habitRepository.existsByTitleAndUserAndIsActiveTrue(title, userOpt.get());
         logger.info("Habit with title '{}' exists for user {}: {}", title, userId, exists);
         return exists;
@@ -494,7 +657,9 @@ public class HabitService {
             return 0;
         }
 
-        long count = habitRepository.countByUserAndIsActiveTrue(userOpt.get());
+        long count = habitWorkingSetCache.activeHabits(userOpt.get())
+                .map(habits -> countOf(habits, snapshot -> true))
+                .orElseGet(() -> habitRepository.countByUserAndIsActiveTrue(userOpt.get()));
         logger.info("User {} has {} active habits", userId, count);
         return count;
     }
@@ -508,7 +673,9 @@ public class HabitService {
             return 0;
         }
 
-        long count = habitRepository.countByUserAndPointLessThanAndIsActiveTrue(userOpt.get(), point);
+        long count = habitWorkingSetCache.activeHabits(userOpt.get())
+                .map(habits -> countOf(habits, snapshot -> snapshot.point() < point))
+                .orElseGet(() -> habitRepository.countByUserAndPointLessThanAndIsActiveTrue(userOpt.get(), point));
         logger.info("User {} has {} habits with points less than {}", userId, count, point);
         return count;
     }
@@ -522,7 +689,9 @@ public class HabitService {
             return 0;
         }
 
-        long count = habitRepository.countByUserAndPointGreaterThanAndIsActiveTrue(userOpt.get(), point);
+        long count = habitWorkingSetCache.activeHabits(userOpt.get())
+                .map(habits -> countOf(habits, snapshot -> snapshot.point() > point))
+                .orElseGet(() -> habitRepository.countByUserAndPointGreaterThanAndIsActiveTrue(userOpt.get(), point));
         logger.info("User {} has {} habits with points greater than {}", userId, count, point);
         return count;
     }
@@ -536,7 +705,9 @@ public class HabitService {
             return 0;
         }
 
-        long count = habitRepository.countByUserAndTypeAndIsActiveTrue(userOpt.get(), type);
+        long count = habitWorkingSetCache.activeHabits(userOpt.get())
+                .map(habits -> countOf(habits, snapshot -> snapshot.type() == type))
+                .orElseGet(() -> habitRepository.countByUserAndTypeAndIsActiveTrue(userOpt.get(), type));
         logger.info("User {} has {} habits with type: {}", userId, count, type);
         return count;
     }
@@ -545,6 +716,10 @@ public class HabitService {
         logger.debug("countByCategory called for userId: {}, categoryId: {}", userId, categoryId);
 
         Optional<User> userOpt = getExistingUser(userId);
+        Optional<List<Snapshot>> cached = userOpt.flatMap(habitWorkingSetCache::activeHabits);
+        if (cached.isPresent()) {
+            return countOf(cached.get(), snapshot -> Objects.equals(categoryId, snapshot.habitCategoryId()));
+        }
         Optional<HabitCategory> categoryOpt = getExistingCategory(categoryId);
         if (userOpt.isEmpty() || categoryOpt.isEmpty()) {
             logger.warn("countByCategory failed: user or category not found");
@@ -560,13 +735,19 @@ public class HabitService {
         logger.debug("countByHabitDayWeek called for userId: {}, habitDayWeekId: {}", userId, habitDayWeekId);
 
         Optional<User> userOpt = getExistingUser(userId);
+        Optional<List<Snapshot>> cached = userOpt.flatMap(habitWorkingSetCache::activeHabits);
+        if (cached.isPresent()) {
+            return countOf(cached.get(), snapshot -> snapshot.habitDayWeekIds().contains(habitDayWeekId));
+        }
         Optional<HabitDayWeek> dayWeekOpt = getExistingHabitDayWeek(habitDayWeekId);
         if (userOpt.isEmpty() || dayWeekOpt.isEmpty()) {
             logger.warn("countByHabitDayWeek failed: user or dayWeek not found");
             return 0;
         }
 
-        long count = habitRepository.countByUserAndHabitDayWeeksContainingAndIsActiveTrue(userOpt.get(), dayWeekOpt.get());
+        DayOfWeek day = dayWeekOpt.get().getDayOfWeek();
+        long count = habitRepository.countActiveScheduledOn(
+                userOpt.get(), day, Habit.masksWith(day), !habitScheduleMaskMigration.isComplete());
         logger.info("User {} has {} habits for day of week: {}", userId, count, habitDayWeekId);
         return count;
     }
@@ -2,12 +2,14 @@ package com.mts.aadati.services;
 
 import com.mts.aadati.dto.mapper.HabitTaskMapper;
 import com.mts.aadati.dto.request.HabitTaskRequest;
+import com.mts.aadati.dto.response.CursorPage;
 import com.mts.aadati.dto.response.HabitTaskResponse;
 import com.mts.aadati.entities.*;
 import com.mts.aadati.enums.RecurrenceType;
 import com.mts.aadati.initialization.InitializationTaskCompletion;
 import com.mts.aadati.repository.HabitTaskRepository;
-import com.mts.aadati.repository.UserRepository;
+import com.mts.aadati.security.UserReferenceResolver;
+import com.mts.aadati.utils.PageCursor;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,8 +29,9 @@ import java.util.*;
 @AllArgsConstructor
 public class HabitTaskService {
     private final HabitTaskRepository habitTaskRepository;
-    private final UserRepository userRepository;
+    private final UserReferenceResolver userReferenceResolver;
     private final InitializationTaskCompletion initializationTaskCompletion ;
+    private final ListCountCache listCountCache;
 
     private static final Logger log = LoggerFactory.getLogger(HabitTaskService.class);
     private static final int DEFAULT_PAGE_SIZE = 10;
@@ -40,7 +43,16 @@ public class HabitTaskService {
             log.warn("getUser: userId is null");
             return Optional.empty();
         }
-        return userRepository.findById(userId);
+        return userReferenceResolver.resolve(userId);
+    }
+
+    // Writes are refused while the user is being deleted
+    private Optional<User> getWritableUser(UUID userId) {
+        if (userId == null) {
+            log.warn("getWritableUser: userId is null");
+            return Optional.empty();
+        }
+        return userReferenceResolver.resolveForWrite(userId);
     }
 
     private Pageable pageable(int pageNumber, int pageSize, String sortBy) {
@@ -52,10 +64,11 @@ public class HabitTaskService {
     public Optional<HabitTaskResponse> addHabitTask(UUID userId, HabitTaskRequest request,
                                                     TaskPriorityLevel taskPriorityLevel,
                                                     HabitCategory habitCategory) {
-        return getUser(userId).map(user -> {
+        return getWritableUser(userId).map(user -> {
             HabitTask habitTask = HabitTaskMapper.toEntity(request, user, taskPriorityLevel, habitCategory);
             HabitTask saved = habitTaskRepository.save(habitTask);
             initializationTaskCompletion.addNewTaskToCompletion(saved);
+            listCountCache.evict(userId);
             log.info("HabitTask added successfully: {}", habitTask.getTitle());
             return HabitTaskMapper.toResponse(habitTask);
         });
@@ -64,12 +77,13 @@ public class HabitTaskService {
     public Optional<HabitTaskResponse> updateHabitTask(UUID userId, UUID habitTaskId, HabitTaskRequest request,
                                                        TaskPriorityLevel taskPriorityLevel,
                                                        HabitCategory habitCategory) {
-        return getUser(userId).flatMap(user ->
+        return getWritableUser(userId).flatMap(user ->
                 habitTaskRepository.findByUserAndHabitTaskIdAndIsActiveTrue(user, habitTaskId)
                         .map(existing -> {
                             HabitTask updated = HabitTaskMapper.toEntity(request, user, taskPriorityLevel, habitCategory);
                             HabitTask saved = habitTaskRepository.save(updated);
                             initializationTaskCompletion.addNewTaskToCompletion(saved);
+                            listCountCache.evict(userId);
                             log.info("HabitTask updated successfully: {}", updated.getTitle());
                             return HabitTaskMapper.toResponse(updated);
                         })
@@ -77,11 +91,12 @@ public class HabitTaskService {
     }
 
     public boolean deleteHabitTask(UUID userId, UUID habitTaskId) {
-        return getUser(userId).flatMap(user ->
+        return getWritableUser(userId).flatMap(user ->
                 habitTaskRepository.findByUserAndHabitTaskIdAndIsActiveTrue(user, habitTaskId)
         ).map(task -> {
             task.deactivate();
             habitTaskRepository.save(task);
+            listCountCache.evict(userId);
             log.info("HabitTask deactivated successfully: {}", task.getTitle());
             return true;
         }).orElse(false);
@@ -184,6 +199,34 @@ public class HabitTaskService {
                 .orElse(Page.empty());
     }
 
+    // ===== Keyset Pageable =====
+    // Empty when the cursor was not handed out by this list
+    public Optional<CursorPage<HabitTaskResponse>> cursorAllActive(UUID userId, String cursor, int pageSize, boolean withTotal) {
+        Optional<PageCursor> after = PageCursor.decode(cursor);
+        if (cursor != null && !cursor.isBlank() && after.map(PageCursor::key).isEmpty()) {
+            log.warn("cursorAllActive: invalid cursor for user {}", userId);
+            return Optional.empty();
+        }
+        int size = PageCursor.pageSize(pageSize);
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        return Optional.of(getUser(userId).map(user -> {
+            List<HabitTask> tasks = after
+                    .map(last -> habitTaskRepository.findActivePageAfter(user, last.key(), last.id(), limit))
+                    .orElseGet(() -> habitTaskRepository.findActiveFirstPage(user, limit));
+            String nextCursor = null;
+            if (tasks.size() > size) {
+                tasks = tasks.subList(0, size);
+                HabitTask last = tasks.get(size - 1);
+                nextCursor = new PageCursor(last.getTitle(), last.getHabitTaskId()).encode();
+            }
+            Long total = withTotal
+                    ? listCountCache.get("habit-task.active", userId, () -> habitTaskRepository.countByUserAndIsActiveTrue(user))
+                    : null;
+            return new CursorPage<>(tasks.stream().map(HabitTaskMapper::toResponse).toList(), nextCursor, total);
+        }).orElseGet(CursorPage::empty));
+    }
+
     // ===== Exists =====
     public boolean existsById(UUID userId, UUID habitTaskId) {
         return getUser(userId).map(user ->
@@ -0,0 +1,272 @@
+package com.mts.aadati.services;
+
+import com.mts.aadati.dto.response.HabitDayWeekRow;
+import com.mts.aadati.dto.response.HabitResponse;
+import com.mts.aadati.entities.Habit;
+import com.mts.aadati.entities.User;
+import com.mts.aadati.repository.HabitRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// The full set of a user's active habits as immutable snapshots, so the habit reads, counts and
+// filters of HabitService are answered in memory. Bounded by an estimated weight in bytes with
+// least recently used users evicted first; users with more habits than fit a snapshot are not cached.
+// HabitService drops a user's set on every write, once immediately and again after the commit.
+// A load only stores its result when no write touched the user while it was reading. The cache is
+// per node and writes made on another node are not broadcast, so every set expires after the ttl.
+// Users are spread over segments, each with its own lock, LRU order and share of the weight budget,
+// so concurrent reads of different users rarely wait on each other.
+@Component
+public class HabitWorkingSetCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(HabitWorkingSetCache.class);
+    private static final int STRIPES = 64;
+    // A power of two dividing STRIPES, so every stripe belongs to exactly one segment
+    private static final int SEGMENTS = 16;
+
+    // One active habit, in the order of the keyset query: title, then id
+    public record Snapshot(UUID habitId, String title, double point, boolean type, String description,
+                           UUID habitCategoryId, int scheduleMask, List<Long> habitDayWeekIds,
+                           Instant updatedAt, Instant createdAt) {
+
+        public HabitResponse toResponse(UUID userId) {
+            return HabitResponse.builder()
+                    .habitId(habitId)
+                    .title(title)
+                    .point(point)
+                    .type(type)
+                    .description(description)
+                    .isActive(true)
+                    .userId(userId)
+                    .habitCategoryId(habitCategoryId)
+                    .habitDayWeekIds(habitDayWeekIds)
+                    .updatedAt(updatedAt)
+                    .createdAt(createdAt)
+                    .build();
+        }
+
+        private long weight() {
+            return 160 + 2L * (title.length() + (description == null ? 0 : description.length()))
+                    + 24L * habitDayWeekIds.size();
+        }
+    }
+
+    private record Entry(List<Snapshot> habits, long weight, long expiresAt) {
+    }
+
+    // Access ordered, the eldest entry is the least recently used; guarded by the segment itself
+    private static final class Segment extends LinkedHashMap<UUID, Entry> {
+        private long weight;
+
+        private Segment() {
+            super(64, 0.75f, true);
+        }
+    }
+
+    private final HabitRepository habitRepository;
+    private final boolean enabled;
+    private final long maxSegmentWeight;
+    private final int maxHabits;
+    private final long ttlMillis;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    // Bumped by every invalidation of a user hashing to the stripe, checked before a load stores
+    private final AtomicLongArray writes = new AtomicLongArray(STRIPES);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter evictions;
+
+    public HabitWorkingSetCache(HabitRepository habitRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${habit.cache.enabled:true}") boolean enabled,
+                                @Value("${habit.cache.max-weight-bytes:67108864}") long maxWeight,
+                                @Value("${habit.cache.max-habits-per-user:500}") int maxHabits,
+                                @Value("${habit.cache.ttl:30000}") long ttlMillis) {
+        this.habitRepository = habitRepository;
+        this.enabled = enabled;
+        this.maxSegmentWeight = Math.max(1, maxWeight / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        this.maxHabits = maxHabits;
+        this.ttlMillis = ttlMillis;
+        this.hits = Counter.builder("habit.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("habit.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.bypasses = Counter.builder("habit.cache.requests").tag("result", "bypass").register(meterRegistry);
+        this.evictions = Counter.builder("habit.cache.evictions").register(meterRegistry);
+        meterRegistry.gauge("habit.cache.weight", this, HabitWorkingSetCache::weight);
+        meterRegistry.gauge("habit.cache.users", this, HabitWorkingSetCache::users);
+    }
+
+    // ===== Reads =====
+    // Empty when the cache is switched off or the user's set is too large to keep
+    public Optional<List<Snapshot>> activeHabits(User user) {
+        if (!enabled || user == null) {
+            return Optional.empty();
+        }
+        UUID userId = user.getUserId();
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            Entry entry = segment.get(userId);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits.increment();
+                return Optional.of(entry.habits());
+            }
+            if (entry != null) {
+                segment.remove(userId);
+                segment.weight -= entry.weight();
+            }
+        }
+
+        long version = writes.get(stripe(userId));
+        List<Habit> habits = habitRepository.findActiveFirstPage(user, PageRequest.of(0, maxHabits + 1));
+        if (habits.size() > maxHabits) {
+            bypasses.increment();
+            logger.debug("Habit working set of user {} exceeds {} habits, not cached", userId, maxHabits);
+            return Optional.empty();
+        }
+        misses.increment();
+        Entry entry = snapshot(habits);
+        store(userId, entry, version);
+        return Optional.of(entry.habits());
+    }
+
+    private Entry snapshot(List<Habit> habits) {
+        Map<UUID, List<Long>> dayWeekIds = new HashMap<>();
+        if (!habits.isEmpty()) {
+            for (HabitDayWeekRow row : habitRepository.findDayWeekIdsByHabitIds(
+                    habits.stream().map(Habit::getHabitId).toList())) {
+                dayWeekIds.computeIfAbsent(row.habitId(), id -> new ArrayList<>()).add(row.dayWeekId());
+            }
+        }
+        List<Snapshot> snapshots = new ArrayList<>(habits.size());
+        long total = 64;
+        for (Habit habit : habits) {
+            Snapshot snapshot = new Snapshot(habit.getHabitId(), habit.getTitle(), habit.getPoint(),
+                    habit.isPositiveHabit(), habit.getDescription(),
+                    habit.getHabitCategory() != null ? habit.getHabitCategory().getHabitCategoryId() : null,
+                    habit.getScheduleMask(),
+                    List.copyOf(dayWeekIds.getOrDefault(habit.getHabitId(), List.of())),
+                    habit.getUpdatedAt(), habit.getCreatedAt());
+            snapshots.add(snapshot);
+            total += snapshot.weight();
+        }
+        return new Entry(List.copyOf(snapshots), total, System.currentTimeMillis() + ttlMillis);
+    }
+
+    private void store(UUID userId, Entry entry, long version) {
+        if (entry.weight() > maxSegmentWeight) {
+            return;
+        }
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            // A write landed while the set was read, the snapshot may predate it
+            if (writes.get(stripe(userId)) != version) {
+                return;
+            }
+            Entry previous = segment.put(userId, entry);
+            segment.weight += entry.weight() - (previous == null ? 0 : previous.weight());
+            Iterator<Map.Entry<UUID, Entry>> eldest = segment.entrySet().iterator();
+            while (segment.weight > maxSegmentWeight && eldest.hasNext()) {
+                Map.Entry<UUID, Entry> evicted = eldest.next();
+                segment.weight -= evicted.getValue().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    // ===== Invalidation =====
+    public void invalidate(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        drop(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    drop(userId);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        for (int s = 0; s < SEGMENTS; s++) {
+            Segment segment = segments[s];
+            synchronized (segment) {
+                for (int stripe = s; stripe < STRIPES; stripe += SEGMENTS) {
+                    writes.incrementAndGet(stripe);
+                }
+                segment.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    private void drop(UUID userId) {
+        Segment segment = segmentFor(userId);
+        synchronized (segment) {
+            writes.incrementAndGet(stripe(userId));
+            Entry removed = segment.remove(userId);
+            if (removed != null) {
+                segment.weight -= removed.weight();
+            }
+        }
+    }
+
+    private static int stripe(UUID userId) {
+        return userId.hashCode() & (STRIPES - 1);
+    }
+
+    // The stripe's low bits, so a store's version check and a drop of the same user share a lock
+    private Segment segmentFor(UUID userId) {
+        return segments[stripe(userId) & (SEGMENTS - 1)];
+    }
+
+    private long weight() {
+        long total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                total += segment.weight;
+            }
+        }
+        return total;
+    }
+
+    private int users() {
+        int total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                total += segment.size();
+            }
+        }
+        return total;
+    }
+}
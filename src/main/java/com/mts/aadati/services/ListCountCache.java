@@ -0,0 +1,97 @@
+package com.mts.aadati.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Total counts of the keyset-paged lists, so a client asking for the total on every page runs the
+// COUNT(*) once per ttl instead of once per page. The habit, task and completion writes evict the
+// user's counts; a write made on another node is seen once the ttl runs out. As in HabitWorkingSetCache,
+// a count is only stored when no eviction touched the user while it ran, so a COUNT that read the rows
+// before a write cannot be cached for a whole ttl after it.
+@Component
+public class ListCountCache {
+
+    private static final int STRIPES = 64;
+
+    private record Entry(long count, long expiresAt) {
+    }
+
+    // Per user, then per list, so evicting a user is one remove
+    private final Map<UUID, Map<String, Entry>> counts = new ConcurrentHashMap<>();
+    // Bumped by every eviction of a user hashing to the stripe, checked before a count is stored
+    private final AtomicLongArray writes = new AtomicLongArray(STRIPES);
+    private final long ttlMillis;
+
+    public ListCountCache(@Value("${pagination.count-ttl:60000}") long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public long get(String list, UUID userId, LongSupplier counter) {
+        long now = System.currentTimeMillis();
+        Entry entry = counts.getOrDefault(userId, Map.of()).get(list);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.count();
+        }
+        long version = writes.get(stripe(userId));
+        long count = counter.getAsLong();
+        Entry counted = new Entry(count, now + ttlMillis);
+        // Checked and stored under the user's bin lock, which an eviction takes as well
+        counts.compute(userId, (id, lists) -> {
+            if (writes.get(stripe(id)) != version) {
+                return lists;
+            }
+            Map<String, Entry> stored = lists == null ? new ConcurrentHashMap<>() : lists;
+            stored.put(list, counted);
+            return stored;
+        });
+        return count;
+    }
+
+    // Once now and again after the commit, a count read in between may predate the write
+    public void evict(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        drop(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    drop(userId);
+                }
+            });
+        }
+    }
+
+    private void drop(UUID userId) {
+        counts.compute(userId, (id, lists) -> {
+            writes.incrementAndGet(stripe(id));
+            return null;
+        });
+    }
+
+    private static int stripe(UUID userId) {
+        return userId.hashCode() & (STRIPES - 1);
+    }
+
+    @Scheduled(fixedDelayString = "${pagination.count-purge-interval:300000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        counts.values().forEach(lists -> lists.values().removeIf(entry -> entry.expiresAt() <= now));
+        counts.values().removeIf(Map::isEmpty);
+    }
+}
@@ -0,0 +1,225 @@
+package com.mts.aadati.services;
+
+import com.mts.aadati.entities.MailOutbox;
+import com.mts.aadati.enums.MailOutboxStatus;
+import com.mts.aadati.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Claims due outbox rows in a short transaction, sends them outside of it, then records the outcome.
+// The scheduler only hands the drain to the dispatcher's own thread, SMTP never holds a scheduler thread.
+// Point spring.mail.host/port at a local SMTP stand-in (GreenMail, MailHog) to exercise it end to end.
+@Service
+public class MailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailOutboxDispatcher.class);
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final ObjectProvider<JavaMailSender> mailSender;
+    private final TransactionTemplate transactionTemplate;
+
+    private final String from;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter retried;
+    private final Timer batchTimer;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mail-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MailOutboxDispatcher(MailOutboxRepository mailOutboxRepository,
+                                ObjectProvider<JavaMailSender> mailSender,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${mail.outbox.from:no-reply@aadati.app}") String from,
+                                @Value("${mail.outbox.batch-size:50}") int batchSize,
+                                @Value("${mail.outbox.max-attempts:8}") int maxAttempts,
+                                @Value("${mail.outbox.lease:300000}") long leaseMillis,
+                                @Value("${mail.outbox.backoff.base:30000}") long baseBackoffMillis,
+                                @Value("${mail.outbox.backoff.max:3600000}") long maxBackoffMillis,
+                                @Value("${mail.outbox.retention:604800000}") long retentionMillis) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.from = from;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.baseBackoff = Duration.ofMillis(baseBackoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+        this.retention = Duration.ofMillis(retentionMillis);
+
+        this.sent = Counter.builder("mail.outbox.sent").register(meterRegistry);
+        this.failed = Counter.builder("mail.outbox.failed").register(meterRegistry);
+        this.retried = Counter.builder("mail.outbox.retried").register(meterRegistry);
+        this.batchTimer = Timer.builder("mail.outbox.batch").register(meterRegistry);
+        // Refreshed by the dispatcher, a scrape never queries the table
+        meterRegistry.gauge("mail.outbox.backlog", backlog);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ===== Dispatch loop =====
+    @Scheduled(fixedDelayString = "${mail.outbox.interval:5000}")
+    public void dispatch() {
+        JavaMailSender sender = mailSender.getIfAvailable();
+        if (sender == null || !dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                drain(sender);
+            } catch (RuntimeException e) {
+                logger.error("Outbox dispatch failed", e);
+            } finally {
+                dispatching.set(false);
+            }
+        });
+    }
+
+    private void drain(JavaMailSender sender) {
+        List<MailOutbox> claimed;
+        do {
+            claimed = claim();
+            if (!claimed.isEmpty()) {
+                List<MailOutbox> batch = claimed;
+                batchTimer.record(() -> send(sender, batch));
+            }
+        } while (claimed.size() == batchSize);
+
+        backlog.set(mailOutboxRepository.countByStatus(MailOutboxStatus.PENDING));
+    }
+
+    @Scheduled(cron = "${mail.outbox.purge.cron:0 45 3 * * *}")
+    public void purgeSent() {
+        int deleted = transactionTemplate.execute(status ->
+                mailOutboxRepository.deleteSentBefore(Instant.now().minus(retention)));
+        logger.info("Purged {} sent outbox mails", deleted);
+    }
+
+    private List<MailOutbox> claim() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<MailOutbox> due = mailOutboxRepository.claimDue(now, PageRequest.of(0, batchSize));
+            due.forEach(mail -> mail.claim(now.plus(lease)));
+            return due;
+        });
+    }
+
+    private void send(JavaMailSender sender, List<MailOutbox> batch) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        Map<Object, MailOutbox> byMessage = new IdentityHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            MailOutbox mail = batch.get(i);
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(from);
+            message.setTo(mail.getRecipient());
+            message.setSubject(mail.getSubject());
+            message.setText(mail.getBody());
+            messages[i] = message;
+            byMessage.put(message, mail);
+        }
+
+        // One call sends the whole batch over a single SMTP connection
+        Map<Object, Exception> failures = Map.of();
+        try {
+            sender.send(messages);
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages().isEmpty() ? allFailed(byMessage, e) : e.getFailedMessages();
+        } catch (MailException e) {
+            // Connection or authentication failure, nothing was sent
+            failures = allFailed(byMessage, e);
+        }
+
+        Map<Object, Exception> failedMessages = failures;
+        transactionTemplate.executeWithoutResult(status -> {
+            Instant now = Instant.now();
+            Map<UUID, MailOutbox> reloaded = mailOutboxRepository
+                    .findAllById(batch.stream().map(MailOutbox::getMailOutboxId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(MailOutbox::getMailOutboxId, Function.identity()));
+            for (SimpleMailMessage message : messages) {
+                MailOutbox mail = reloaded.get(byMessage.get(message).getMailOutboxId());
+                if (mail == null) {
+                    continue;
+                }
+                Exception error = failedMessages.get(message);
+                if (error == null) {
+                    mail.markSent();
+                    sent.increment();
+                } else {
+                    mail.markFailed(error.getMessage(), now.plus(backoff(mail.getAttempts() + 1)), maxAttempts);
+                    if (mail.getStatus() == MailOutboxStatus.FAILED) {
+                        failed.increment();
+                        logger.error("Outbox mail {} failed permanently after {} attempts: {}",
+                                mail.getMailOutboxId(), mail.getAttempts(), error.getMessage());
+                    } else {
+                        retried.increment();
+                        logger.warn("Outbox mail {} failed, retry at {}: {}",
+                                mail.getMailOutboxId(), mail.getNextAttemptAt(), error.getMessage());
+                    }
+                }
+            }
+        });
+        logger.debug("Dispatched {} outbox mails, {} failed", batch.size(), failedMessages.size());
+    }
+
+    private static Map<Object, Exception> allFailed(Map<Object, MailOutbox> byMessage, Exception e) {
+        Map<Object, Exception> all = new IdentityHashMap<>();
+        byMessage.keySet().forEach(message -> all.put(message, e));
+        return all;
+    }
+
+    // Exponential backoff: base, 2 x base, 4 x base ... capped at max
+    private Duration backoff(int attempt) {
+        int exponent = Math.min(attempt - 1, 20);
+        Duration delay = baseBackoff.multipliedBy(1L << exponent);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
@@ -0,0 +1,50 @@
+package com.mts.aadati.services;
+
+import com.mts.aadati.entities.MailOutbox;
+import com.mts.aadati.repository.MailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+@Service
+@RequiredArgsConstructor
+public class MailOutboxService {
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private static final Logger logger = LoggerFactory.getLogger(MailOutboxService.class);
+
+    // ===== Enqueue, only inside the caller's transaction so the mail commits or rolls back with the change =====
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String recipient, String subject, String body) {
+        logger.debug("enqueue called for recipient: {}", recipient);
+        if (recipient == null || recipient.isBlank()) {
+            logger.warn("enqueue failed: recipient is blank");
+            return;
+        }
+        mailOutboxRepository.save(MailOutbox.builder()
+                .recipient(recipient)
+                .subject(subject)
+                .body(body)
+                .build());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueWelcome(String recipient, String username) {
+        enqueue(recipient, "Welcome to Aadati",
+                "Hello " + username + ",\n\nYour Aadati account has been created.\n");
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueEmailChanged(String previousEmail, String username) {
+        enqueue(previousEmail, "Your Aadati email was changed",
+                "Hello " + username + ",\n\nThe email address of your Aadati account was changed. "
+                        + "If you did not make this change, please contact support.\n");
+    }
+}
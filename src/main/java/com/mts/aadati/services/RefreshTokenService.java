@@ -0,0 +1,148 @@
+package com.mts.aadati.services;
+
+import com.mts.aadati.entities.RefreshToken;
+import com.mts.aadati.entities.User;
+import com.mts.aadati.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final String HMAC_SHA_256 = "HmacSHA256";
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final ThreadLocal<Mac> mac;
+    private final long refreshExpiration;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${token.service.refresh.pepper}") String pepper,
+                               @Value("${token.service.secret.key:}") String signingSecret,
+                               @Value("${token.service.refresh.expiration}") long refreshExpiration) {
+        // Its own key: stored hashes must survive a rotation of the JWT signing secret
+        if (pepper.isBlank()) {
+            throw new IllegalStateException("token.service.refresh.pepper must not be blank");
+        }
+        if (pepper.equals(signingSecret)) {
+            throw new IllegalStateException("token.service.refresh.pepper must differ from token.service.secret.key");
+        }
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpiration = refreshExpiration;
+        SecretKeySpec key = new SecretKeySpec(pepper.getBytes(StandardCharsets.UTF_8), HMAC_SHA_256);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(HMAC_SHA_256);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        });
+    }
+
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    // ===== Issue a new token family at login / register =====
+    @Transactional
+    public String issue(User user) {
+        logger.debug("issue called for user: {}", user.getUserId());
+        return issue(user, UUID.randomUUID());
+    }
+
+    // ===== Rotate: one indexed lookup + one HMAC, no password verification =====
+    @Transactional(noRollbackFor = AuthenticationServiceException.class)
+    public Rotation rotate(String rawToken) {
+        String tokenHash = hash(rawToken);
+        RefreshToken current = refreshTokenRepository.findByTokenHash(tokenHash)
+                .orElseThrow(() -> {
+                    logger.warn("rotate failed: refresh token not found");
+                    return new AuthenticationServiceException("Invalid refresh token");
+                });
+
+        if (current.isUsed() || current.isRevoked()) {
+            throw reuseDetected(current);
+        }
+        if (current.isExpired()) {
+            logger.warn("rotate failed: refresh token expired for user: {}", current.getUser().getUserId());
+            throw new AuthenticationServiceException("Refresh token expired");
+        }
+
+        // Conditional claim: of two concurrent rotations of the same token only one updates the row,
+        // the other waits on its lock, then sees it used and is treated as reuse
+        if (refreshTokenRepository.claim(tokenHash) == 0) {
+            throw reuseDetected(current);
+        }
+        String next = issue(current.getUser(), current.getFamilyId());
+        logger.info("Refresh token rotated for user: {}", current.getUser().getUserId());
+        return new Rotation(current.getUser(), next);
+    }
+
+    // A rotated token came back: assume it was stolen and kill the whole family
+    private AuthenticationServiceException reuseDetected(RefreshToken current) {
+        int revoked = refreshTokenRepository.revokeFamily(current.getFamilyId());
+        logger.warn("Refresh token reuse detected for user: {}, revoked {} tokens of family {}",
+                current.getUser().getUserId(), revoked, current.getFamilyId());
+        return new AuthenticationServiceException("Invalid refresh token");
+    }
+
+    @Transactional
+    public int revokeAllForUser(UUID userId) {
+        logger.debug("revokeAllForUser called with: {}", userId);
+        if (userId == null) {
+            logger.warn("revokeAllForUser failed: userId is null");
+            return 0;
+        }
+        int revoked = refreshTokenRepository.revokeAllByUserId(userId);
+        logger.info("Revoked {} refresh tokens for user: {}", revoked, userId);
+        return revoked;
+    }
+
+    // ===== Purge expired rows in one statement =====
+    @Transactional
+    @Scheduled(cron = "${token.service.refresh.purge.cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        logger.info("Purged {} expired refresh tokens", deleted);
+    }
+
+    private String issue(User user, UUID familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(rawToken))
+                .familyId(familyId)
+                .user(user)
+                .expiresAt(Instant.now().plusMillis(refreshExpiration))
+                .build());
+        return rawToken;
+    }
+
+    private String hash(String rawToken) {
+        return HexFormat.of().formatHex(mac.get().doFinal(rawToken.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
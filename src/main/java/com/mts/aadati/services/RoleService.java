@@ -5,6 +5,8 @@ import com.mts.aadati.dto.request.RoleRequest;
 import com.mts.aadati.dto.response.RoleResponse;
 import com.mts.aadati.entities.Role;
 import com.mts.aadati.repository.RoleRepository;
+import com.mts.aadati.security.RoleBitIndex;
+import com.mts.aadati.security.SecurityEpochRegistry;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,20 +23,29 @@ import java.util.*;
 public class RoleService {
 
     private final RoleRepository roleRepository;
+    private final SecurityEpochRegistry securityEpochRegistry;
     private static final Logger logger = LoggerFactory.getLogger(RoleService.class);
 
+    public static final String DEFAULT_ROLE = "ROLE_USER";
+    // Id of DEFAULT_ROLE, resolved once so a signup does not read the role table
+    private volatile UUID defaultRoleId;
+
     // ===== CRUD =====
+    @Transactional
     public boolean addOrUpdateRole(Role role) {
         logger.debug("addOrUpdateRole called with: {}", role);
         if (role == null) {
             logger.warn("addOrUpdateRole failed: role is null");
             return false;
         }
+        assignBits(List.of(role));
         Role savedRole = roleRepository.save(role);
+        defaultRoleId = null;
         logger.info("Role saved/updated successfully: {}", savedRole.getName());
         return true;
     }
 
+    @Transactional
     public boolean addOrUpdateRoleList(List<Role> roles) {
         logger.debug("addOrUpdateRoleList called with {} roles", roles != null ? roles.size() : 0);
         if (roles == null || roles.isEmpty()) {
@@ -53,6 +64,7 @@ public class RoleService {
         }
 
         if (!rolesToSave.isEmpty()) {
+            assignBits(rolesToSave);
             roleRepository.saveAll(rolesToSave);
             logger.info("Role list saved successfully ({} new records)", rolesToSave.size());
         } else {
@@ -62,6 +74,7 @@ public class RoleService {
         return true;
     }
 
+    @Transactional
     public boolean addOrUpdateRoleRequests(List<RoleRequest> roleRequests) {
         logger.debug("addOrUpdateRoleRequests called with {} requests", roleRequests != null ? roleRequests.size() : 0);
         if (roleRequests == null || roleRequests.isEmpty()) {
@@ -79,17 +92,22 @@ public class RoleService {
                         .orElse(role))
                 .toList();
 
+        assignBits(rolesToSave);
         roleRepository.saveAll(rolesToSave);
         logger.info("addOrUpdateRoleRequests saved {} roles", rolesToSave.size());
         return true;
     }
 
+    @Transactional
     public boolean deleteRole(UUID roleId) {
         logger.debug("deleteRole called with: {}", roleId);
         return roleRepository.findById(roleId)
                 .map(role -> {
                     role.setDeleted(true);
                     roleRepository.save(role);
+                    defaultRoleId = null;
+                    // Tokens of the role holders still carry it, revoke them
+                    securityEpochRegistry.bumpAll(roleRepository.findUserIdsByRoleId(roleId));
                     logger.info("Role deleted successfully: {}", role.getName());
                     return true;
                 })
@@ -99,6 +117,22 @@ public class RoleService {
                 });
     }
 
+    // ===== Role bits =====
+    // A new role takes the next free bit of the token role bitset, the unique column rejects a concurrent taker
+    private void assignBits(List<Role> roles) {
+        List<Role> newRoles = roles.stream().filter(role -> role.getBit() == null && role.getRoleId() == null).toList();
+        if (newRoles.isEmpty()) {
+            return;
+        }
+        int next = roleRepository.findMaxBit().map(max -> max + 1).orElse(0);
+        if (next + newRoles.size() > RoleBitIndex.MAX_ROLES) {
+            throw new IllegalStateException("Only " + RoleBitIndex.MAX_ROLES + " roles fit in the role bitset");
+        }
+        for (Role role : newRoles) {
+            role.assignBit(next++);
+        }
+    }
+
     // ===== Find =====
     @Transactional(readOnly = true)
     public Optional<RoleResponse> findByName(String name) {
@@ -121,6 +155,22 @@ public class RoleService {
         return roleRepository.findByNameIgnoreCase(name.trim());
     }
 
+    // ===== Default role reference, a proxy only: no SELECT once the id is known =====
+    @Transactional(readOnly = true)
+    public Optional<Role> getDefaultRoleReference() {
+        UUID roleId = defaultRoleId;
+        if (roleId == null) {
+            Optional<Role> role = roleRepository.findByNameIgnoreCase(DEFAULT_ROLE);
+            if (role.isEmpty()) {
+                logger.warn("getDefaultRoleReference failed: {} does not exist", DEFAULT_ROLE);
+                return Optional.empty();
+            }
+            defaultRoleId = role.get().getRoleId();
+            return role;
+        }
+        return Optional.of(roleRepository.getReferenceById(roleId));
+    }
+
     @Transactional(readOnly = true)
     public List<RoleResponse> searchByName(String name) {
         logger.debug("searchByName called with: {}", name);
@@ -0,0 +1,221 @@
+package com.mts.aadati.services;
+
+import com.mts.aadati.entities.UserSession;
+import com.mts.aadati.enums.SessionEventType;
+import com.mts.aadati.repository.UserRepository;
+import com.mts.aadati.repository.UserSessionRepository;
+import com.mts.aadati.utils.ClientIpResolver;
+import com.mts.aadati.utils.GeoIpResolver;
+import com.mts.aadati.utils.GeoIpResolver.GeoLocation;
+import com.mts.aadati.utils.UserAgentResolver;
+import com.mts.aadati.utils.UserAgentResolver.ClientInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Auth events are queued by the request thread and enriched (User-Agent, GeoIP) and persisted in
+// batches by a single background worker; a full queue drops the event instead of slowing the login
+@Service
+public class SessionMetadataPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionMetadataPipeline.class);
+    private static final int MAX_USER_AGENT_LENGTH = 512;
+    private static final int MAX_IP_LENGTH = 45;
+
+    private final UserSessionRepository userSessionRepository;
+    private final UserRepository userRepository;
+    private final UserAgentResolver userAgentResolver;
+    private final GeoIpResolver geoIpResolver;
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<SessionEvent> queue;
+    private final int batchSize;
+    private final Counter dropped;
+    private final Counter persisted;
+    private final Counter failed;
+
+    private Thread worker;
+    private volatile boolean running;
+
+    public record Origin(String ip, String userAgent) {
+
+        public static Origin from(HttpServletRequest request, ClientIpResolver clientIpResolver) {
+            return new Origin(clientIpResolver.resolve(request), request.getHeader("User-Agent"));
+        }
+    }
+
+    public record SessionEvent(UUID userId, SessionEventType type, Origin origin, Instant occurredAt) {
+    }
+
+    public SessionMetadataPipeline(UserSessionRepository userSessionRepository,
+                                   UserRepository userRepository,
+                                   UserAgentResolver userAgentResolver,
+                                   GeoIpResolver geoIpResolver,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${session.metadata.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${session.metadata.batch-size:200}") int batchSize) {
+        this.userSessionRepository = userSessionRepository;
+        this.userRepository = userRepository;
+        this.userAgentResolver = userAgentResolver;
+        this.geoIpResolver = geoIpResolver;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.dropped = Counter.builder("session.metadata.dropped").register(meterRegistry);
+        this.persisted = Counter.builder("session.metadata.persisted").register(meterRegistry);
+        this.failed = Counter.builder("session.metadata.failed").register(meterRegistry);
+        meterRegistry.gauge("session.metadata.queue.depth", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = new Thread(this::run, "session-metadata");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    // ===== Called on the request thread, never blocks =====
+    public void publish(UUID userId, SessionEventType type, Origin origin) {
+        if (userId == null || origin == null) {
+            return;
+        }
+        if (!queue.offer(new SessionEvent(userId, type, origin, Instant.now()))) {
+            dropped.increment();
+            logger.debug("Session metadata queue is full, dropped {} event for user {}", type, userId);
+        }
+    }
+
+    // ===== Background stage =====
+    private void run() {
+        List<SessionEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                SessionEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    // Flush what is left before shutting down
+                    queue.drainTo(batch);
+                    persist(batch);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to persist {} session metadata events", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // User agent parsing and the GeoIP lookup run before the transaction opens, it only holds a
+    // connection for the inserts
+    private void persist(List<SessionEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Enriched> enriched = new ArrayList<>(batch.size());
+        for (SessionEvent event : batch) {
+            enriched.add(enrich(event));
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<UserSession> sessions = new ArrayList<>(enriched.size());
+                for (Enriched event : enriched) {
+                    sessions.add(toSession(event));
+                }
+                // One flush, batched by hibernate.jdbc.batch_size
+                userSessionRepository.saveAll(sessions);
+            });
+            persisted.increment(batch.size());
+            logger.debug("Persisted {} session metadata records", batch.size());
+        } catch (RuntimeException e) {
+            // One bad event, e.g. of a user deleted meanwhile, must not lose the rest of the batch
+            logger.warn("Session metadata batch of {} failed, retrying events one by one: {}", batch.size(), e.getMessage());
+            enriched.forEach(this::persistOne);
+        }
+    }
+
+    private void persistOne(Enriched event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> userSessionRepository.save(toSession(event)));
+            persisted.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            logger.debug("Dropped {} session metadata event for user {}: {}",
+                    event.event().type(), event.event().userId(), e.getMessage());
+        }
+    }
+
+    // An event with its origin already resolved
+    private record Enriched(SessionEvent event, String ip, String userAgent, ClientInfo client, GeoLocation location) {
+    }
+
+    private Enriched enrich(SessionEvent event) {
+        Origin origin = event.origin();
+        String userAgent = origin.userAgent();
+        if (userAgent != null && userAgent.length() > MAX_USER_AGENT_LENGTH) {
+            userAgent = userAgent.substring(0, MAX_USER_AGENT_LENGTH);
+        }
+        String ip = origin.ip();
+        if (ip != null && ip.length() > MAX_IP_LENGTH) {
+            ip = ip.substring(0, MAX_IP_LENGTH);
+        }
+        ClientInfo client = userAgentResolver.resolve(origin.userAgent());
+        GeoLocation location = geoIpResolver.resolve(ip).orElse(null);
+        return new Enriched(event, ip, userAgent, client, location);
+    }
+
+    private UserSession toSession(Enriched enriched) {
+        SessionEvent event = enriched.event();
+        ClientInfo client = enriched.client();
+        GeoLocation location = enriched.location();
+        return UserSession.builder()
+                // A reference only, the user row is not loaded
+                .user(userRepository.getReferenceById(event.userId()))
+                .eventType(event.type())
+                .ipAddress(enriched.ip())
+                .userAgent(enriched.userAgent())
+                .os(client.os())
+                .browser(client.browser())
+                .device(client.device())
+                .country(location == null ? null : location.country())
+                .city(location == null ? null : location.city())
+                .createdAt(event.occurredAt())
+                .build();
+    }
+}
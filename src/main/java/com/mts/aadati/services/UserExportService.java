@@ -0,0 +1,119 @@
+package com.mts.aadati.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mts.aadati.dto.response.UserExportRow;
+import com.mts.aadati.dto.response.UserResponse;
+import com.mts.aadati.dto.response.UserRoleRow;
+import com.mts.aadati.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Streams every user as NDJSON, one keyset page on (created_at, user_id) at a time. Each page is read
+// in its own short read-only transaction as scalar rows plus one roles query, written, then flushed;
+// the flush blocks while the client is behind, so the next page is only read once it has drained.
+@Service
+public class UserExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportService.class);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter writer;
+    private final int pageSize;
+
+    public UserExportService(UserRepository userRepository,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${user.export.page-size:500}") int pageSize) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Flushing is done once per page, not after every line
+        this.writer = objectMapper.writerFor(UserResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.pageSize = pageSize;
+    }
+
+    private record Page(List<UserExportRow> rows, Map<UUID, List<String>> roles) {
+    }
+
+    public long exportNdjson(OutputStream out) throws IOException {
+        long written = 0;
+        try (JsonGenerator generator = writer.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            UserExportRow last = null;
+            Page page;
+            do {
+                page = readPage(last);
+                for (UserExportRow row : page.rows()) {
+                    writer.writeValue(generator, toResponse(row, page.roles()));
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+                written += page.rows().size();
+                if (!page.rows().isEmpty()) {
+                    last = page.rows().get(page.rows().size() - 1);
+                }
+            } while (page.rows().size() == pageSize);
+        } catch (IOException e) {
+            logger.info("User export aborted after {} users: {}", written, e.getMessage());
+            throw e;
+        }
+        logger.info("User export streamed {} users", written);
+        return written;
+    }
+
+    private Page readPage(UserExportRow after) {
+        return readOnlyTransaction.execute(status -> {
+            PageRequest limit = PageRequest.of(0, pageSize);
+            List<UserExportRow> rows = after == null
+                    ? userRepository.findExportFirstPage(limit)
+                    : userRepository.findExportPageAfter(after.createdAt(), after.userId(), limit);
+            if (rows.isEmpty()) {
+                return new Page(rows, Map.of());
+            }
+
+            Map<UUID, List<String>> roles = new HashMap<>(rows.size() * 2);
+            for (UserRoleRow role : userRepository.findRoleNamesByUserIds(rows.stream().map(UserExportRow::userId).toList())) {
+                roles.computeIfAbsent(role.userId(), id -> new ArrayList<>(2)).add(role.roleName());
+            }
+            return new Page(rows, roles);
+        });
+    }
+
+    private static UserResponse toResponse(UserExportRow row, Map<UUID, List<String>> roles) {
+        return UserResponse.builder()
+                .userId(row.userId())
+                .firstName(row.firstName())
+                .lastName(row.lastName())
+                .username(row.username())
+                .email(row.email())
+                .emailVerified(row.emailVerified())
+                .createdAt(row.createdAt())
+                .updatedAt(row.updatedAt())
+                .roles(roles.getOrDefault(row.userId(), List.of()))
+                .build();
+    }
+}
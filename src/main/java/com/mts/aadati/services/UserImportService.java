@@ -0,0 +1,473 @@
+package com.mts.aadati.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mts.aadati.dto.request.UserRequest;
+import com.mts.aadati.dto.response.UserImportResult;
+import com.mts.aadati.dto.response.UserImportSummary;
+import com.mts.aadati.entities.Role;
+import com.mts.aadati.enums.ImportRowStatus;
+import com.mts.aadati.exeption.ServiceBusyException;
+import com.mts.aadati.repository.UserRepository;
+import com.mts.aadati.search.UserChangedEvent;
+import com.mts.aadati.security.password.PasswordPolicy;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Bulk account creation from a CSV or NDJSON stream. Rows are read, validated, hashed and inserted one
+// chunk at a time, and the per-row report is streamed back as NDJSON as each chunk completes, so
+// neither the input nor the report is ever held in memory as a whole.
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+    private static final String[] CSV_COLUMNS = {"firstName", "lastName", "username", "email", "password"};
+
+    private static final String INSERT_USER = "INSERT INTO users " +
+            "(user_id, first_name, last_name, username, password, email, email_verified, updated_at, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_USER_ROLE = "INSERT INTO user_role (user_id, role_id) VALUES (?, ?)";
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format of(String contentType) {
+            if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("text/csv")) {
+                return CSV;
+            }
+            return NDJSON;
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final RoleService roleService;
+    private final MailOutboxService mailOutboxService;
+    private final UserStatistics userStatistics;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordPolicy passwordPolicy;
+    private final Validator validator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+
+    private final int chunkSize;
+    private final Duration timeout;
+    // BCrypt for a chunk runs here, bounded so an import cannot take every core from the login executor
+    private final ForkJoinPool hashPool;
+    // Imports stream for minutes, a fixed number run at once and a short queue waits; beyond that it is 503
+    private final ThreadPoolExecutor importExecutor;
+
+    public UserImportService(UserRepository userRepository,
+                             RoleService roleService,
+                             MailOutboxService mailOutboxService,
+                             UserStatistics userStatistics,
+                             PasswordEncoder passwordEncoder,
+                             PasswordPolicy passwordPolicy,
+                             Validator validator,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             ObjectMapper objectMapper,
+                             @Value("${user.import.chunk-size:500}") int chunkSize,
+                             @Value("${user.import.hash-parallelism:0}") int hashParallelism,
+                             @Value("${user.import.timeout:3600000}") long timeoutMillis,
+                             @Value("${user.import.workers:2}") int workers,
+                             @Value("${user.import.queue-capacity:2}") int queueCapacity) {
+        this.userRepository = userRepository;
+        this.roleService = roleService;
+        this.mailOutboxService = mailOutboxService;
+        this.userStatistics = userStatistics;
+        this.passwordEncoder = passwordEncoder;
+        this.passwordPolicy = passwordPolicy;
+        this.validator = validator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.chunkSize = chunkSize;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        int parallelism = hashParallelism > 0
+                ? hashParallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashPool = new ForkJoinPool(parallelism);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.importExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-import-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        importExecutor.shutdownNow();
+        hashPool.shutdownNow();
+    }
+
+    // Runs an import request in the background, ServiceBusyException when every slot is taken
+    public void submit(Runnable importTask) {
+        try {
+            importExecutor.execute(importTask);
+        } catch (RejectedExecutionException e) {
+            logger.warn("User import rejected: {} imports running, {} queued",
+                    importExecutor.getActiveCount(), importExecutor.getQueue().size());
+            throw new ServiceBusyException("Too many imports in progress, retry later", 60);
+        }
+    }
+
+    // How long one import request may stream before it is cut off
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    // A parsed input row, request is null when the row could not be parsed
+    private static final class Pending {
+        private final long row;
+        private final UserRequest request;
+        private String hash;
+        private UUID userId;
+        private UserImportResult result;
+
+        private Pending(long row, UserRequest request) {
+            this.row = row;
+            this.request = request;
+        }
+    }
+
+    // ===== Import =====
+    public UserImportSummary importUsers(InputStream in, Format format, boolean welcome, OutputStream out) throws IOException {
+        UUID defaultRoleId = roleService.getDefaultRoleReference()
+                .map(Role::getRoleId)
+                .orElseThrow(() -> new IllegalStateException(RoleService.DEFAULT_ROLE + " does not exist"));
+
+        long rows = 0;
+        long created = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try (JsonGenerator generator = writer.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            int[] columns = null;
+            if (format == Format.CSV) {
+                try {
+                    columns = csvHeader(reader.readLine());
+                } catch (IllegalArgumentException e) {
+                    // Nothing can be read without the header, report it as row 0
+                    writer.writeValue(generator, new UserImportResult(0, ImportRowStatus.INVALID, null, null, e.getMessage()));
+                    generator.writeRaw('\n');
+                    return finish(generator, 0, 0);
+                }
+            }
+            List<Pending> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                rows++;
+                chunk.add(parse(rows, line, format, columns));
+                if (chunk.size() == chunkSize) {
+                    created += process(chunk, defaultRoleId, welcome, generator);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                created += process(chunk, defaultRoleId, welcome, generator);
+            }
+
+            return finish(generator, rows, created);
+        } catch (IOException e) {
+            logger.warn("User import aborted after {} rows, {} created: {}", rows, created, e.getMessage());
+            throw e;
+        }
+    }
+
+    private UserImportSummary finish(JsonGenerator generator, long rows, long created) throws IOException {
+        UserImportSummary summary = new UserImportSummary(rows, created, rows - created);
+        writer.writeValue(generator, summary);
+        generator.writeRaw('\n');
+        generator.flush();
+        logger.info("User import finished: {} rows, {} created", rows, created);
+        return summary;
+    }
+
+    private int process(List<Pending> chunk, UUID defaultRoleId, boolean welcome, JsonGenerator generator) throws IOException {
+        List<Pending> valid = validate(chunk);
+        rejectExisting(valid);
+        valid.removeIf(pending -> pending.result != null);
+
+        // BCrypt(12) dominates the import, spread the chunk over the hash pool
+        hashPool.submit(() -> valid.parallelStream().forEach(pending -> {
+            pending.hash = passwordEncoder.encode(pending.request.getPassword());
+            pending.request.setPassword(null);
+        })).join();
+
+        int created = insert(valid, defaultRoleId, welcome);
+
+        for (Pending pending : chunk) {
+            writer.writeValue(generator, pending.result);
+            generator.writeRaw('\n');
+        }
+        // Blocks while the client is behind, the next chunk is not read until the report drains
+        generator.flush();
+        return created;
+    }
+
+    // ===== Validation, no database access =====
+    private List<Pending> validate(List<Pending> chunk) {
+        List<Pending> valid = new ArrayList<>(chunk.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (Pending pending : chunk) {
+            if (pending.result != null) {
+                continue;
+            }
+            UserRequest request = pending.request;
+            Set<ConstraintViolation<UserRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                pending.result = rejected(pending, ImportRowStatus.INVALID, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+            try {
+                passwordPolicy.check(request.getPassword());
+            } catch (IllegalArgumentException e) {
+                pending.result = rejected(pending, ImportRowStatus.INVALID, e.getMessage());
+                continue;
+            }
+            if (!usernames.add(request.getUsername())) {
+                pending.result = rejected(pending, ImportRowStatus.DUPLICATE, "Username repeated in the import");
+                continue;
+            }
+            if (!emails.add(request.getEmail())) {
+                pending.result = rejected(pending, ImportRowStatus.DUPLICATE, "Email repeated in the import");
+                continue;
+            }
+            valid.add(pending);
+        }
+        return valid;
+    }
+
+    // Two queries per chunk instead of two per row; earlier chunks are already committed
+    private void rejectExisting(List<Pending> valid) {
+        if (valid.isEmpty()) {
+            return;
+        }
+        Set<String> usernames = new HashSet<>(userRepository.findExistingUsernames(
+                valid.stream().map(pending -> pending.request.getUsername()).toList()));
+        Set<String> emails = new HashSet<>(userRepository.findExistingEmails(
+                valid.stream().map(pending -> pending.request.getEmail()).toList()));
+        for (Pending pending : valid) {
+            if (usernames.contains(pending.request.getUsername())) {
+                pending.result = rejected(pending, ImportRowStatus.DUPLICATE, "Username already exists");
+            } else if (emails.contains(pending.request.getEmail())) {
+                pending.result = rejected(pending, ImportRowStatus.DUPLICATE, "Email already exists");
+            }
+        }
+    }
+
+    // ===== Insert =====
+    private int insert(List<Pending> valid, UUID defaultRoleId, boolean welcome) {
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        valid.forEach(pending -> pending.userId = UUID.randomUUID());
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBatch(valid, defaultRoleId, welcome));
+            valid.forEach(pending -> pending.result = createdResult(pending));
+            return valid.size();
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent signup took a name after the check, find the row one by one
+            logger.warn("Import batch of {} rows hit a constraint, retrying row by row", valid.size());
+            int created = 0;
+            for (Pending pending : valid) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insertBatch(List.of(pending), defaultRoleId, welcome));
+                    pending.result = createdResult(pending);
+                    created++;
+                } catch (DataIntegrityViolationException rowError) {
+                    pending.result = rejected(pending, ImportRowStatus.DUPLICATE, "Username or email already exists");
+                } catch (RuntimeException rowError) {
+                    logger.error("Import of row {} failed", pending.row, rowError);
+                    pending.result = rejected(pending, ImportRowStatus.FAILED, "Internal error");
+                }
+            }
+            return created;
+        } catch (RuntimeException e) {
+            logger.error("Import batch of {} rows failed", valid.size(), e);
+            valid.forEach(pending -> pending.result = rejected(pending, ImportRowStatus.FAILED, "Internal error"));
+            return 0;
+        }
+    }
+
+    // Runs inside the chunk transaction: two JDBC batches, then the same side effects as a signup
+    private void insertBatch(List<Pending> rows, UUID defaultRoleId, boolean welcome) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_USER, rows, rows.size(), (ps, pending) -> {
+            UserRequest request = pending.request;
+            ps.setObject(1, pending.userId);
+            ps.setString(2, request.getFirstName());
+            ps.setString(3, request.getLastName());
+            ps.setString(4, request.getUsername());
+            ps.setString(5, pending.hash);
+            ps.setString(6, request.getEmail());
+            ps.setBoolean(7, true);
+            ps.setTimestamp(8, now);
+            ps.setTimestamp(9, now);
+        });
+        jdbcTemplate.batchUpdate(INSERT_USER_ROLE, rows, rows.size(), (ps, pending) -> {
+            ps.setObject(1, pending.userId);
+            ps.setObject(2, defaultRoleId);
+        });
+
+        List<String> roles = List.of(RoleService.DEFAULT_ROLE);
+        for (Pending pending : rows) {
+            UserRequest request = pending.request;
+            if (welcome) {
+                mailOutboxService.enqueueWelcome(request.getEmail(), request.getUsername());
+            }
+            eventPublisher.publishEvent(new UserChangedEvent(pending.userId,
+                    request.getFirstName(), request.getLastName(), request.getEmail(), false));
+            userStatistics.userCreated(true, roles);
+        }
+    }
+
+    private static UserImportResult createdResult(Pending pending) {
+        return new UserImportResult(pending.row, ImportRowStatus.CREATED, pending.request.getUsername(), pending.userId, null);
+    }
+
+    private static UserImportResult rejected(Pending pending, ImportRowStatus status, String message) {
+        String username = pending.request == null ? null : pending.request.getUsername();
+        return new UserImportResult(pending.row, status, username, null, message);
+    }
+
+    // ===== Parsing =====
+    private Pending parse(long row, String line, Format format, int[] columns) {
+        try {
+            UserRequest request;
+            if (format == Format.NDJSON) {
+                request = objectMapper.readValue(line, UserRequest.class);
+            } else {
+                List<String> fields = csvFields(line);
+                request = new UserRequest();
+                request.setFirstName(field(fields, columns[0]));
+                request.setLastName(field(fields, columns[1]));
+                request.setUsername(field(fields, columns[2]));
+                request.setEmail(field(fields, columns[3]));
+                request.setPassword(field(fields, columns[4]));
+            }
+            return new Pending(row, request);
+        } catch (IOException | IllegalArgumentException e) {
+            Pending pending = new Pending(row, null);
+            pending.result = new UserImportResult(row, ImportRowStatus.INVALID, null, null, "Unreadable row");
+            return pending;
+        }
+    }
+
+    // Position of each of CSV_COLUMNS in the header, any order, names are case-insensitive
+    private static int[] csvHeader(String header) {
+        if (header == null) {
+            throw new IllegalArgumentException("CSV import is empty");
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        List<String> names = csvFields(header);
+        for (int i = 0; i < names.size(); i++) {
+            positions.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            Integer position = positions.get(CSV_COLUMNS[i].toLowerCase(Locale.ROOT));
+            if (position == null) {
+                throw new IllegalArgumentException("CSV header is missing the " + CSV_COLUMNS[i] + " column");
+            }
+            columns[i] = position;
+        }
+        return columns;
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < fields.size() ? fields.get(column) : null;
+    }
+
+    // RFC 4180 fields of a single line: quoted fields may hold commas and doubled quotes
+    private static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>(CSV_COLUMNS.length);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -6,15 +6,30 @@ import com.mts.aadati.dto.mapper.UserMapper;
 import com.mts.aadati.repository.UserRepository;
 import com.mts.aadati.dto.request.UserRequest;
 import com.mts.aadati.dto.response.UserResponse;
+import com.mts.aadati.search.UserChangedEvent;
+import com.mts.aadati.search.UserSearchIndex;
+import com.mts.aadati.search.UserSearchIndex.Field;
+import com.mts.aadati.security.SecurityEpochRegistry;
+import com.mts.aadati.security.password.PasswordPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * © 2025 Mohamed Taha
@@ -26,6 +41,16 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper ;
+    private final SecurityEpochRegistry securityEpochRegistry ;
+    private final RefreshTokenService refreshTokenService ;
+    private final PasswordPolicy passwordPolicy ;
+    private final MailOutboxService mailOutboxService ;
+    private final UserSearchIndex userSearchIndex ;
+    private final ApplicationEventPublisher eventPublisher ;
+    private final MeterRegistry meterRegistry ;
+    private final UserStatistics userStatistics ;
+    private final DeletionService deletionService ;
+    private final PlatformTransactionManager transactionManager ;
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
@@ -52,6 +77,8 @@ public class UserService {
         }
 
         User saved = userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.saved(saved));
+        userStatistics.userCreated(saved.isEmailVerified(), saved.getRoles().stream().map(Role::getName).toList());
         logger.info("User added successfully with username: {}", saved.getUsername());
         return Optional.of(saved);
     }
@@ -64,16 +91,7 @@ public class UserService {
             return Optional.empty();
         }
 
-        if (userRequest.getUsername() != null
-                && userRepository.findByUsername(userRequest.getUsername()).isPresent()) {
-            logger.warn("addUserEntity failed: Username {} already exists", userRequest.getUsername());
-            throw new IllegalArgumentException("Username already exists");
-        }
-
-        if (userRequest.getEmail() != null && userRepository.findByEmail(userRequest.getEmail()).isPresent()) {
-            logger.warn("addUserEntity failed: Email {} already exists", userRequest.getEmail());
-            throw new IllegalArgumentException("Email already exists");
-        }
+        passwordPolicy.check(userRequest.getPassword());
 
         User user = userMapper.toEntity(userRequest);
 
@@ -81,11 +99,62 @@ public class UserService {
             user.setPassword(passwordEncoder.encode(user.getPassword()));
         }
 
-        User saved = userRepository.save(user);
+        // No pre-checks: the unique constraints decide, one INSERT into users and one into user_role
+        User saved;
+        try {
+            saved = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw translateUniqueViolation(e, userRequest);
+        }
+        // Same transaction: the mail is only sent if the user is committed
+        mailOutboxService.enqueueWelcome(saved.getEmail(), saved.getUsername());
+        eventPublisher.publishEvent(UserChangedEvent.saved(saved));
+        // The default role is an uninitialized reference, its name is known without loading it
+        userStatistics.userCreated(saved.isEmailVerified(),
+                saved.getRoles().isEmpty() ? List.of() : List.of(RoleService.DEFAULT_ROLE));
         logger.info("User entity added successfully with username: {}", saved.getUsername());
         return Optional.of(saved);
     }
 
+    // Named constraints are matched directly. Schemas created before they were named still carry
+    // Hibernate's hash-named UK... constraints, so any other name is classified by looking the values up
+    private RuntimeException translateUniqueViolation(DataIntegrityViolationException e, UserRequest userRequest) {
+        String constraint = constraintName(e);
+        boolean username = constraint != null && constraint.contains(User.UK_USERNAME);
+        boolean email = constraint != null && constraint.contains(User.UK_EMAIL);
+        if (!username && !email) {
+            // The failed flush has spoiled this transaction, look in a fresh one
+            TransactionTemplate lookup = new TransactionTemplate(transactionManager);
+            lookup.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            lookup.setReadOnly(true);
+            username = Boolean.TRUE.equals(lookup.execute(status ->
+                    userRequest.getUsername() != null && userRepository.existsByUsername(userRequest.getUsername())));
+            email = !username && Boolean.TRUE.equals(lookup.execute(status ->
+                    userRequest.getEmail() != null && userRepository.existsByEmail(userRequest.getEmail())));
+        }
+        if (username) {
+            logger.warn("addUserEntity failed: Username {} already exists", userRequest.getUsername());
+            return new IllegalArgumentException("Username already exists");
+        }
+        if (email) {
+            logger.warn("addUserEntity failed: Email {} already exists", userRequest.getEmail());
+            return new IllegalArgumentException("Email already exists");
+        }
+        logger.error("addUserEntity failed: integrity violation {}", e.getMostSpecificCause().getMessage());
+        return e;
+    }
+
+    // Hibernate exposes the violated constraint, fall back to the driver message for other providers
+    private static String constraintName(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT);
+            }
+        }
+        String message = e.getMostSpecificCause().getMessage();
+        return message == null ? null : message.toLowerCase(Locale.ROOT);
+    }
+
     @Transactional
     public Optional<User> updateUser(String usernameOrEmail, UserRequest userRequest) {
         logger.debug("updateUser called with: {}", usernameOrEmail);
@@ -105,11 +174,18 @@ public class UserService {
         }
 
         User existing = existingUser.get();
+        if (deletionService.isDeleting(existing)) {
+            logger.warn("updateUser failed: User {} is being deleted", usernameOrEmail);
+            throw new NoSuchElementException("User not found");
+        }
+        boolean credentialsChanged = false;
 
         if (userRequest.getFirstName() != null) existing.setFirstName(userRequest.getFirstName());
         if (userRequest.getLastName() != null) existing.setLastName(userRequest.getLastName());
         if (userRequest.getPassword() != null && !userRequest.getPassword().isBlank()) {
+            passwordPolicy.check(userRequest.getPassword());
             existing.setPassword(passwordEncoder.encode(userRequest.getPassword()));
+            credentialsChanged = true;
         }
 
         if (userRequest.getEmail() != null && !userRequest.getEmail().equals(existing.getEmail())) {
@@ -117,10 +193,17 @@ public class UserService {
                 logger.warn("updateUser failed: Email {} already exists", userRequest.getEmail());
                 throw new IllegalArgumentException("Email already exists");
             }
+            mailOutboxService.enqueueEmailChanged(existing.getEmail(), existing.getUsername());
             existing.setEmail(userRequest.getEmail());
+            credentialsChanged = true;
         }
 
         User saved = userRepository.save(existing);
+        eventPublisher.publishEvent(UserChangedEvent.saved(saved));
+        if (credentialsChanged) {
+            securityEpochRegistry.bump(saved.getUserId());
+            refreshTokenService.revokeAllForUser(saved.getUserId());
+        }
         logger.info("User updated successfully: {}", saved.getUsername());
         return Optional.of(saved);
     }
@@ -131,12 +214,15 @@ public class UserService {
             logger.warn("removeUserById failed: uuid is null");
             return false;
         }
-        if (!userRepository.existsById(uuid)) {
+        // Set-based and in the background, the user is locked out as soon as the job starts.
+        // Marking the row tells whether it exists, no lookup first
+        try {
+            deletionService.deleteUser(uuid);
+        } catch (NoSuchElementException e) {
             logger.warn("removeUserById failed: User not found with id: {}", uuid);
             return false;
         }
-        userRepository.deleteById(uuid);
-        logger.info("User deleted successfully with id: {}", uuid);
+        logger.info("User deletion started for id: {}", uuid);
         return true;
     }
 
@@ -189,41 +275,66 @@ public class UserService {
                 .map(this::convertToUserResponse);
     }
 
-    public List<UserResponse> findByFirstNameLike(String firstName) {
+    // ===== Substring search, served by the trigram index, the LIKE queries only until it is built =====
+    public List<UserResponse> findByFirstNameLike(String firstName, int page, int size) {
         if (firstName.isBlank())
             return Collections.emptyList();
-        return userRepository.findByFirstNameContainingIgnoreCase(firstName)
-                .stream()
-                .map(this::convertToUserResponse)
-                .toList();
+        return search(Field.FIRST_NAME, Map.of(Field.FIRST_NAME, firstName), page, size,
+                () -> userRepository.findByFirstNameContainingIgnoreCase(firstName, PageRequest.of(page, size)));
     }
 
-    public List<UserResponse> findByLastNameLike(String lastName) {
+    public List<UserResponse> findByLastNameLike(String lastName, int page, int size) {
         if (lastName.isBlank())
             return Collections.emptyList();
-        return userRepository.findByLastNameContainingIgnoreCase(lastName)
-                .stream()
-                .map(this::convertToUserResponse)
-                .toList();
+        return search(Field.LAST_NAME, Map.of(Field.LAST_NAME, lastName), page, size,
+                () -> userRepository.findByLastNameContainingIgnoreCase(lastName, PageRequest.of(page, size)));
     }
 
-    public List<UserResponse> findByEmailLike(String email) {
+    public List<UserResponse> findByEmailLike(String email, int page, int size) {
         if (email.isBlank())
             return Collections.emptyList();
-        return userRepository.findByEmailContainingIgnoreCase(email)
-                .stream()
-                .map(this::convertToUserResponse)
-                .toList();
+        return search(Field.EMAIL, Map.of(Field.EMAIL, email), page, size,
+                () -> userRepository.findByEmailContainingIgnoreCase(email, PageRequest.of(page, size)));
     }
 
     public Optional<UserResponse> findByFirstNameAndLastNameLike(String firstName, String lastName) {
         boolean bFirstName = !(firstName.isBlank());
         boolean bLastName = !(lastName.isBlank());
+        if (!(bLastName && bFirstName))
+            return Optional.empty();
 
-        return (bLastName && bFirstName) ?
-                userRepository.findByFirstNameContainingIgnoreCaseAndLastNameContainingIgnoreCase(firstName, lastName)
-                        .map(this::convertToUserResponse) :
-                Optional.empty();
+        // Best ranked match only
+        return search(null, Map.of(Field.FIRST_NAME, firstName, Field.LAST_NAME, lastName), 0, 1,
+                () -> userRepository.findByFirstNameContainingIgnoreCaseAndLastNameContainingIgnoreCase(firstName, lastName)
+                        .map(List::of)
+                        .orElse(List.of()))
+                .stream()
+                .findFirst();
+    }
+
+    private List<UserResponse> search(Field field, Map<Field, String> terms, int page, int size,
+                                      Supplier<List<User>> fallback) {
+        long started = System.nanoTime();
+        Optional<List<UUID>> ids = userSearchIndex.search(terms, page, size);
+        List<User> users;
+        if (ids.isPresent()) {
+            // One query for the page, then back into rank order
+            Map<UUID, User> byId = new HashMap<>();
+            userRepository.findAllById(ids.get()).forEach(user -> byId.put(user.getUserId(), user));
+            users = ids.get().stream().map(byId::get).filter(Objects::nonNull).toList();
+        } else {
+            users = fallback.get();
+        }
+
+        String source = ids.isPresent() ? "index" : "database";
+        meterRegistry.timer("user.search",
+                        "field", field == null ? "full_name" : field.name().toLowerCase(Locale.ROOT),
+                        "source", source)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        logger.debug("User search {} on {} returned {} users", terms.keySet(), source, users.size());
+        return users.stream()
+                .map(this::convertToUserResponse)
+                .toList();
     }
 
     // ===== Helper Methods Search By Date =====
@@ -274,11 +385,11 @@ public class UserService {
 
     // ===== Helper Method For Email Verified =====
     public long getCountByEmailVerifiedTrue() {
-        return userRepository.countByEmailVerifiedTrue();
+        return userStatistics.verified();
     }
 
     public long getCountByEmailVerifiedFalse() {
-        return userRepository.countByEmailVerifiedFalse();
+        return userStatistics.unverified();
     }
 
     public Optional<String> getEmailIsActive(String email) {
@@ -354,7 +465,7 @@ public class UserService {
             logger.warn("countUsersWithRole failed: roleName is blank");
             return 0;
         }
-        long count = userRepository.countUsersByRole(roleName);
+        long count = userStatistics.usersWithRole(roleName);
         logger.info("Number of users with role {}: {}", roleName, count);
         return count;
     }
@@ -0,0 +1,137 @@
+package com.mts.aadati.services;
+
+import com.mts.aadati.dto.response.RoleUserCount;
+import com.mts.aadati.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// User counts for the admin dashboard, loaded once and moved by the writes of UserService after they
+// commit. A periodic reconciliation against the table corrects drift from writes on other nodes.
+@Component
+public class UserStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatistics.class);
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong unverified = new AtomicLong();
+    // Entries are never removed, their gauges keep a reference to the counter
+    private final Map<String, AtomicLong> byRole = new ConcurrentHashMap<>();
+    private final Counter corrections;
+
+    public UserStatistics(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.meterRegistry = meterRegistry;
+        this.corrections = Counter.builder("users.statistics.corrections").register(meterRegistry);
+        Gauge.builder("users.email.verified", verified, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("users.email.unverified", unverified, AtomicLong::get).register(meterRegistry);
+    }
+
+    // ===== Reads =====
+    public long verified() {
+        return verified.get();
+    }
+
+    public long unverified() {
+        return unverified.get();
+    }
+
+    public long usersWithRole(String roleName) {
+        AtomicLong count = byRole.get(roleName);
+        return count == null ? 0 : count.get();
+    }
+
+    // ===== Writes, applied once the surrounding transaction commits =====
+    public void userCreated(boolean emailVerified, Collection<String> roleNames) {
+        afterCommit(() -> move(emailVerified, roleNames, 1));
+    }
+
+    public void userRemoved(boolean emailVerified, Collection<String> roleNames) {
+        afterCommit(() -> move(emailVerified, roleNames, -1));
+    }
+
+    private void move(boolean emailVerified, Collection<String> roleNames, int delta) {
+        (emailVerified ? verified : unverified).addAndGet(delta);
+        roleNames.forEach(name -> role(name).addAndGet(delta));
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    private AtomicLong role(String roleName) {
+        return byRole.computeIfAbsent(roleName, name -> {
+            AtomicLong count = new AtomicLong();
+            Gauge.builder("users.by.role", count, AtomicLong::get).tag("role", name).register(meterRegistry);
+            return count;
+        });
+    }
+
+    // ===== Reconciliation =====
+    @PostConstruct
+    void load() {
+        sync();
+        logger.info("User statistics loaded: {} verified, {} unverified, {} roles",
+                verified.get(), unverified.get(), byRole.size());
+    }
+
+    @Scheduled(fixedDelayString = "${user.statistics.reconcile-interval:600000}",
+            initialDelayString = "${user.statistics.reconcile-interval:600000}")
+    public void reconcile() {
+        long drift = sync();
+        if (drift > 0) {
+            corrections.increment(drift);
+            logger.info("User statistics reconciled, corrected a drift of {}", drift);
+        }
+    }
+
+    private long sync() {
+        long drift = correct(verified, userRepository.countByEmailVerifiedTrue())
+                + correct(unverified, userRepository.countByEmailVerifiedFalse());
+
+        Map<String, Long> counted = new HashMap<>();
+        for (RoleUserCount row : userRepository.countUsersPerRole()) {
+            counted.put(row.roleName(), row.users());
+        }
+        counted.keySet().forEach(this::role);
+        for (Map.Entry<String, AtomicLong> entry : byRole.entrySet()) {
+            drift += correct(entry.getValue(), counted.getOrDefault(entry.getKey(), 0L));
+        }
+        return drift;
+    }
+
+    private static long correct(AtomicLong counter, long actual) {
+        long previous = counter.getAndSet(actual);
+        return Math.abs(previous - actual);
+    }
+}
@@ -0,0 +1,33 @@
+package com.mts.aadati.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// The client address of a request. X-Forwarded-For is client supplied and only believed when the
+// application sits behind a proxy that sets it; otherwise the socket address is the only truth.
+@Component
+public class ClientIpResolver {
+
+    private final boolean trustForwardedFor;
+
+    public ClientIpResolver(@Value("${client-ip.trust-forwarded-for:${rate-limit.trust-forwarded-for:false}}") boolean trustForwardedFor) {
+        this.trustForwardedFor = trustForwardedFor;
+    }
+
+    public String resolve(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                int comma = forwardedFor.indexOf(',');
+                return (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
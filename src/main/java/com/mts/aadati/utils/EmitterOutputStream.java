@@ -0,0 +1,57 @@
+package com.mts.aadati.utils;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Buffers writes and hands them to a ResponseBodyEmitter on each flush, so code written against an
+// OutputStream can stream through an emitter and its own timeout. A flush blocks while the client is
+// behind; once the emitter has completed or timed out it fails with an IOException.
+public final class EmitterOutputStream extends OutputStream {
+
+    private final ResponseBodyEmitter emitter;
+    private final MediaType mediaType;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+
+    public EmitterOutputStream(ResponseBodyEmitter emitter, MediaType mediaType) {
+        this.emitter = emitter;
+        this.mediaType = mediaType;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        buffer.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (buffer.size() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toByteArray();
+        buffer.reset();
+        try {
+            emitter.send(bytes, mediaType);
+        } catch (IllegalStateException e) {
+            throw new IOException("Response already completed", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
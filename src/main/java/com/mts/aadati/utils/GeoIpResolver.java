@@ -0,0 +1,93 @@
+package com.mts.aadati.utils;
+
+import com.maxmind.db.CHMCache;
+import com.maxmind.db.Reader;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CityResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Optional;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Component
+@Slf4j
+public class GeoIpResolver {
+
+    @Value("${geoip.database.file:}")
+    private String databaseFile;
+    @Value("${geoip.cache.capacity:4096}")
+    private int cacheCapacity;
+
+    private DatabaseReader reader;
+
+    public record GeoLocation(String country, String city) {
+    }
+
+    @PostConstruct
+    void init() {
+        if (databaseFile == null || databaseFile.isBlank()) {
+            log.info("No GeoIP database configured, IP geolocation is disabled");
+            return;
+        }
+        try {
+            // Memory mapped: the OS page cache holds the database, not the heap
+            reader = new DatabaseReader.Builder(new File(databaseFile))
+                    .fileMode(Reader.FileMode.MEMORY_MAPPED)
+                    .withCache(new CHMCache(cacheCapacity))
+                    .build();
+            log.info("GeoIP database loaded: {}", reader.getMetadata().getDatabaseType());
+        } catch (IOException e) {
+            log.error("Failed to open GeoIP database {}, IP geolocation is disabled", databaseFile, e);
+        }
+    }
+
+    public Optional<GeoLocation> resolve(String ip) {
+        if (reader == null || !isIpLiteral(ip)) {
+            return Optional.empty();
+        }
+        try {
+            // Only called with an IP literal, so this never does a DNS lookup
+            Optional<CityResponse> response = reader.tryCity(InetAddress.getByName(ip));
+            return response.map(city -> new GeoLocation(city.getCountry().getName(), city.getCity().getName()));
+        } catch (IOException | GeoIp2Exception | UnsupportedOperationException e) {
+            log.debug("GeoIP lookup failed for {}: {}", ip, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    // IPv4 is digits and dots, IPv6 always contains a colon; anything else could be a host name
+    private static boolean isIpLiteral(String ip) {
+        if (ip == null || ip.isEmpty() || ip.length() > 45) {
+            return false;
+        }
+        boolean ipv6 = ip.indexOf(':') >= 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            boolean valid = (c >= '0' && c <= '9') || c == '.'
+                    || (ipv6 && (c == ':' || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')));
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,39 @@
+package com.mts.aadati.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Properties;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Configuration
+public class MailConfig {
+
+    // JavaMail waits forever on a silent SMTP server; bound connect, read and write unless
+    // spring.mail.properties already sets them
+    @Bean
+    static BeanPostProcessor mailSenderTimeouts(@Value("${mail.smtp.connect-timeout:10000}") long connectTimeout,
+                                                @Value("${mail.smtp.read-timeout:30000}") long readTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof JavaMailSenderImpl sender) {
+                    Properties properties = sender.getJavaMailProperties();
+                    for (String protocol : new String[]{"smtp", "smtps"}) {
+                        properties.putIfAbsent("mail." + protocol + ".connectiontimeout", String.valueOf(connectTimeout));
+                        properties.putIfAbsent("mail." + protocol + ".timeout", String.valueOf(readTimeout));
+                        properties.putIfAbsent("mail." + protocol + ".writetimeout", String.valueOf(readTimeout));
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+}
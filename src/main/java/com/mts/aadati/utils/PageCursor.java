@@ -0,0 +1,54 @@
+package com.mts.aadati.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Continuation token of a keyset-paged list: the sort key and the id of the last row returned,
+// base64url encoded so clients treat it as opaque. A null key stands for a null sort value.
+public record PageCursor(String key, UUID id) {
+
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final char SEPARATOR = '\n';
+
+    // The default when no size was asked for, never more than the maximum
+    public static int pageSize(int requested) {
+        return requested > 0 ? Math.min(requested, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+    }
+
+    public String encode() {
+        String raw = (key == null ? "" : "v" + key) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Empty when the token was not produced by encode()
+    public static Optional<PageCursor> decode(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The id never contains the separator, the key might
+            int at = raw.lastIndexOf(SEPARATOR);
+            if (at < 0) {
+                return Optional.empty();
+            }
+            String key = raw.substring(0, at);
+            if (!key.isEmpty() && key.charAt(0) != 'v') {
+                return Optional.empty();
+            }
+            UUID id = UUID.fromString(raw.substring(at + 1));
+            return Optional.of(new PageCursor(key.isEmpty() ? null : key.substring(1), id));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.mts.aadati.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ua_parser.Client;
+import ua_parser.Parser;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+@Component
+@Slf4j
+public class UserAgentResolver {
+
+    public static final String UNKNOWN = "Unknown";
+    public static final ClientInfo UNKNOWN_CLIENT = new ClientInfo(UNKNOWN, UNKNOWN, UNKNOWN);
+    // Longer values are not real browsers, parsing them only burns regex time
+    private static final int MAX_USER_AGENT_LENGTH = 512;
+
+    // Loading the parser compiles the whole regexes.yaml, do it once; parse() itself is thread-safe
+    private final Parser parser;
+    private final BoundedLruCache<String, ClientInfo> cache;
+
+    public UserAgentResolver(@Value("${user-agent.cache.max-size:2048}") int maxSize) {
+        this.parser = new Parser();
+        this.cache = new BoundedLruCache<>(Math.max(maxSize, 1), () -> { });
+    }
+
+    public record ClientInfo(String os, String browser, String device) {
+    }
+
+    // ===== Resolve a User-Agent, parsed at most once while it stays in the LRU =====
+    public ClientInfo resolve(String userAgent) {
+        if (userAgent == null || userAgent.isBlank() || userAgent.length() > MAX_USER_AGENT_LENGTH) {
+            return UNKNOWN_CLIENT;
+        }
+        ClientInfo cached = cache.get(userAgent);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Parsed outside the segment lock, two threads may parse the same new agent once each
+        ClientInfo clientInfo = parse(userAgent);
+        cache.put(userAgent, clientInfo);
+        return clientInfo;
+    }
+
+    private ClientInfo parse(String userAgent) {
+        try {
+            Client client = parser.parse(userAgent);
+            return new ClientInfo(
+                    client.os.family == null ? UNKNOWN : client.os.family,
+                    client.userAgent.family == null ? UNKNOWN : client.userAgent.family,
+                    client.device.family == null ? UNKNOWN : client.device.family
+            );
+        } catch (Exception e) {
+            log.error("Failed to parse User-Agent: {}", userAgent, e);
+            return UNKNOWN_CLIENT;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.mts.aadati.security;
+
+import com.mts.aadati.entities.User;
+import com.mts.aadati.repository.HabitCompletionSeekRepository;
+import com.mts.aadati.repository.HabitRepository;
+import com.mts.aadati.repository.HabitTaskRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// The habit, task and completion services resolve their user through UserReferenceResolver and then
+// query by it. For the request principal that must cost at least one statement less than loading the user.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(UserReferenceResolver.class)
+class UserReferenceResolverQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private UserReferenceResolver userReferenceResolver;
+    @Autowired
+    private HabitRepository habitRepository;
+    @Autowired
+    private HabitTaskRepository habitTaskRepository;
+    @Autowired
+    private HabitCompletionSeekRepository habitCompletionSeekRepository;
+
+    private Statistics statistics;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        User user = entityManager.persistFlushFind(User.builder()
+                .firstName("Query")
+                .lastName("Count")
+                .username("query-count")
+                .password("not-a-real-hash")
+                .email("query-count@example.com")
+                .emailVerified(true)
+                .build());
+        userId = user.getUserId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void habitListSavesTheUserSelect() {
+        assertSavesRoundTrip(user -> habitRepository.findActiveFirstPage(user, PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void habitTaskListSavesTheUserSelect() {
+        assertSavesRoundTrip(user -> habitTaskRepository.findActiveFirstPage(user, PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void habitCompletionCountSavesTheUserSelect() {
+        assertSavesRoundTrip(habitCompletionSeekRepository::countByUser);
+    }
+
+    @Test
+    void otherUsersAreStillLoaded() {
+        assertThat(userReferenceResolver.resolve(UUID.randomUUID())).isEmpty();
+    }
+
+    private void assertSavesRoundTrip(Consumer<User> query) {
+        long asPrincipal = statements(true, query);
+        long asAnotherCaller = statements(false, query);
+        assertThat(asPrincipal).isLessThanOrEqualTo(asAnotherCaller - 1);
+    }
+
+    private long statements(boolean principal, Consumer<User> query) {
+        SecurityContextHolder.clearContext();
+        if (principal) {
+            CustomUserDetails details = new CustomUserDetails(userId, "query-count", null,
+                    "query-count@example.com", List.of());
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(details, null, List.of()));
+        }
+        entityManager.clear();
+        statistics.clear();
+        User user = userReferenceResolver.resolve(userId).orElseThrow();
+        query.accept(user);
+        return statistics.getPrepareStatementCount();
+    }
+}
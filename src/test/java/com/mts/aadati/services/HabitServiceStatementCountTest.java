@@ -0,0 +1,148 @@
+package com.mts.aadati.services;
+
+import com.mts.aadati.entities.Habit;
+import com.mts.aadati.entities.HabitCategory;
+import com.mts.aadati.entities.HabitDayWeek;
+import com.mts.aadati.entities.User;
+import com.mts.aadati.initialization.HabitScheduleMaskMigration;
+import com.mts.aadati.initialization.InitializationHabitCompletion;
+import com.mts.aadati.security.UserReferenceResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * © 2025 Mohamed Taha
+ * This file is part of the MTS Aadati Application.
+ */
+
+// Regression guard for the habit list endpoints: the number of SQL statements a page costs must not
+// depend on how many habits are on it. Runs against the database, the working-set cache is off.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "habit.cache.enabled=false"
+})
+@Import({HabitService.class, UserReferenceResolver.class, ListCountCache.class, HabitWorkingSetCache.class,
+        HabitScheduleMaskMigration.class,
+        HabitServiceStatementCountTest.Metrics.class})
+class HabitServiceStatementCountTest {
+
+    private static final int HABITS = 30;
+    private static final int SMALL_PAGE = 5;
+    private static final int LARGE_PAGE = 25;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockitoBean
+    private InitializationHabitCompletion initializationHabitCompletion;
+    @MockitoBean
+    private DeletionService deletionService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private HabitService habitService;
+
+    private Statistics statistics;
+    private UUID userId;
+    private UUID categoryId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+        User user = entityManager.persist(User.builder()
+                .firstName("Statement")
+                .lastName("Count")
+                .username("statement-count")
+                .password("not-a-real-hash")
+                .email("statement-count@example.com")
+                .emailVerified(true)
+                .build());
+        HabitCategory category = entityManager.persist(HabitCategory.builder()
+                .name("Health")
+                .color("#336699")
+                .build());
+        List<HabitDayWeek> days = List.of(
+                entityManager.persist(HabitDayWeek.builder().dayOfWeek(DayOfWeek.MONDAY).build()),
+                entityManager.persist(HabitDayWeek.builder().dayOfWeek(DayOfWeek.THURSDAY).build()));
+
+        for (int i = 0; i < HABITS; i++) {
+            Habit habit = Habit.builder()
+                    .title("Habit " + letters(i))
+                    .point(1.0)
+                    .type(true)
+                    .isActive(true)
+                    .user(user)
+                    .habitCategory(category)
+                    .build();
+            habit.setSchedule(days);
+            entityManager.persist(habit);
+        }
+        entityManager.flush();
+        userId = user.getUserId();
+        categoryId = category.getHabitCategoryId();
+    }
+
+    @Test
+    void pageableAllActive() {
+        assertFlat(size -> assertThat(habitService.pageableAllActive(userId, 0, size).getContent()).hasSize(size));
+    }
+
+    @Test
+    void pageableByCategory() {
+        assertFlat(size -> assertThat(habitService.pageableByCategory(userId, categoryId, 0, size).getContent())
+                .hasSize(size));
+    }
+
+    @Test
+    void cursorAllActive() {
+        assertFlat(size -> assertThat(habitService.cursorAllActive(userId, null, size, false).orElseThrow().content())
+                .hasSize(size));
+    }
+
+    private void assertFlat(IntConsumer page) {
+        long small = statements(page, SMALL_PAGE);
+        long large = statements(page, LARGE_PAGE);
+        assertThat(large)
+                .as("statements for %d habits vs %d habits", LARGE_PAGE, SMALL_PAGE)
+                .isEqualTo(small);
+    }
+
+    private long statements(IntConsumer page, int size) {
+        entityManager.clear();
+        statistics.clear();
+        page.accept(size);
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Titles only allow letters
+    private static String letters(int i) {
+        return String.valueOf((char) ('a' + i / 26)) + (char) ('a' + i % 26);
+    }
+}